@@ -0,0 +1,70 @@
+/* Benchmark for AULib (Andrew's Utilities library).
+* Times the AUField and AUMultiField inner loops with the scalar kernels
+* and with the SIMD kernels from jdk.incubator.vector, on 1080p and 4K fields.
+*
+* Build the library (with src-vector compiled in, see the README), then run with
+* Processing's core.jar and AULib.jar on the classpath:
+*   java --add-modules jdk.incubator.vector -cp core.jar:library/AULib.jar bench/AUKernelsBench.java
+* Without --add-modules only the scalar numbers are printed.
+*/
+
+import AULib.*;
+import processing.core.PApplet;
+
+public class AUKernelsBench {
+
+	static final int WARMUP = 10;
+	static final int RUNS = 30;
+
+	interface Op {
+		void run();
+	}
+
+	public static void main(String[] args) {
+		PApplet sketch = new PApplet();
+		int[][] sizes = { { 1920, 1080 }, { 3840, 2160 } };
+		for (int[] sz : sizes) {
+			System.out.println("--- " + sz[0] + " x " + sz[1] + " ---");
+			benchSize(sketch, sz[0], sz[1]);
+		}
+	}
+
+	static void benchSize(PApplet sketch, int w, int h) {
+		final AUField f = new AUField(sketch, w, h);
+		final AUField g = new AUField(sketch, w, h);
+		for (int i=0; i<f.data.length; i++) {
+			f.data[i] = (float)Math.random();
+			g.data[i] = 1 + (float)Math.random();
+		}
+		final AUMultiField A = new AUMultiField(sketch, 4, w, h);
+		final AUMultiField B = new AUMultiField(sketch, 4, w, h);
+		A.flattenRGBA(200, 100, 50, 128);
+		B.flattenRGBA(10, 20, 30, 255);
+
+		report("add(float)",   new Op() { public void run() { f.add(.5f); } });
+		report("mul(float)",   new Op() { public void run() { f.mul(1.0001f); } });
+		report("add(AUField)", new Op() { public void run() { f.add(g); } });
+		report("mul(AUField)", new Op() { public void run() { f.mul(g); } });
+		report("setRange",     new Op() { public void run() { f.setRange(0, 255); } });
+		report("over",         new Op() { public void run() { A.over(B); } });
+	}
+
+	static void report(String name, Op op) {
+		AUKernels.setVectorEnabled(false);
+		double scalar = time(op);
+		String line = String.format("%-14s scalar %8.3f ms", name, scalar);
+		if (AUKernels.isVectorAvailable()) {
+			AUKernels.setVectorEnabled(true);
+			double vector = time(op);
+			line += String.format("   vector %8.3f ms   speedup %.2fx", vector, scalar/vector);
+		}
+		System.out.println(line);
+	}
+
+	static double time(Op op) {
+		for (int i=0; i<WARMUP; i++) op.run();
+		long start = System.nanoTime();
+		for (int i=0; i<RUNS; i++) op.run();
+		return (System.nanoTime() - start) / (1e6 * RUNS);
+	}
+}
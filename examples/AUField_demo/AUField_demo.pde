@@ -27,10 +27,10 @@ void setup() {
   // modify the field so it's quantized to this many grays
   for (int y=0; y<field.h; y++) {
     for (int x=0; x<field.w; x++) {
-      float v = field.z[y][x];
+      float v = field.get(x, y);
       float gray = (int)(v/(255.0/numGrays));
       gray *= 255.0/(numGrays-1);
-      field.z[y][x] = gray;      
+      field.set(x, y, gray);      
     }
   }
   
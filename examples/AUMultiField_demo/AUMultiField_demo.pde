@@ -27,12 +27,12 @@ void setup() {
   // modify the field by thresholding red, green, and blue
   for (int y=0; y<mfield.h; y++) {
     for (int x=0; x<mfield.w; x++) {
-      float redVal = mfield.fields[0].z[y][x];
-      float grnVal = mfield.fields[1].z[y][x];
-      float bluVal = mfield.fields[2].z[y][x];
-      mfield.fields[0].z[y][x] = (redVal > 192) ? 255 : 0;
-      mfield.fields[1].z[y][x] = (grnVal > 128) ? 255 : 0;
-      mfield.fields[2].z[y][x] = (bluVal >  64) ? 255 : 0;
+      float redVal = mfield.fields[0].get(x, y);
+      float grnVal = mfield.fields[1].get(x, y);
+      float bluVal = mfield.fields[2].get(x, y);
+      mfield.fields[0].set(x, y, (redVal > 192) ? 255 : 0);
+      mfield.fields[1].set(x, y, (grnVal > 128) ? 255 : 0);
+      mfield.fields[2].set(x, y, (bluVal >  64) ? 255 : 0);
     }
   }
   
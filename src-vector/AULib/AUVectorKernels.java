@@ -0,0 +1,193 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*************************************************
+* VECTOR KERNELS
+* SIMD versions of AUKernels using the Java Vector API.
+* Only ever loaded by name from AUKernels, so the rest of
+* the library doesn't need jdk.incubator.vector to compile
+* or run. It lives in its own source folder, src-vector,
+* and is compiled after the library (JDK 16 or later):
+*   javac --add-modules jdk.incubator.vector -cp core.jar:<library classes> src-vector/AULib/AUVectorKernels.java
+* Each loop does whole vectors, then hands the last few
+* values to the scalar code.
+*************************************************/
+
+class AUVectorKernels extends AUKernels {
+
+	static final VectorSpecies<Float> S = FloatVector.SPECIES_PREFERRED;
+	static final int L = S.length();
+
+	// Strided runs (channels of an interleaved AUMultiField) go to the scalar code,
+	// and so do overInterleaved() and compositeInterleaved(). The stride would need
+	// gathers and scatters, and these loops are mostly waiting on memory: even
+	// the planar versions below are only a little faster than scalar on them.
+
+	void add(float[] d, int i, int ds, int n, float a) {
+		if (ds != 1) {
+			super.add(d, i, ds, n, a);
+			return;
+		}
+		int upper = S.loopBound(n);
+		for (int k=0; k<upper; k+=L) {
+			FloatVector.fromArray(S, d, i+k).add(a).intoArray(d, i+k);
+		}
+		super.add(d, i+upper, 1, n-upper, a);
+	}
+
+	void mul(float[] d, int i, int ds, int n, float a) {
+		if (ds != 1) {
+			super.mul(d, i, ds, n, a);
+			return;
+		}
+		int upper = S.loopBound(n);
+		for (int k=0; k<upper; k+=L) {
+			FloatVector.fromArray(S, d, i+k).mul(a).intoArray(d, i+k);
+		}
+		super.mul(d, i+upper, 1, n-upper, a);
+	}
+
+	void add(float[] d, int i, int ds, float[] s, int j, int ss, int n) {
+		if ((ds != 1) || (ss != 1)) {
+			super.add(d, i, ds, s, j, ss, n);
+			return;
+		}
+		int upper = S.loopBound(n);
+		for (int k=0; k<upper; k+=L) {
+			FloatVector.fromArray(S, d, i+k).add(FloatVector.fromArray(S, s, j+k)).intoArray(d, i+k);
+		}
+		super.add(d, i+upper, 1, s, j+upper, 1, n-upper);
+	}
+
+	void mul(float[] d, int i, int ds, float[] s, int j, int ss, int n) {
+		if ((ds != 1) || (ss != 1)) {
+			super.mul(d, i, ds, s, j, ss, n);
+			return;
+		}
+		int upper = S.loopBound(n);
+		for (int k=0; k<upper; k+=L) {
+			FloatVector.fromArray(S, d, i+k).mul(FloatVector.fromArray(S, s, j+k)).intoArray(d, i+k);
+		}
+		super.mul(d, i+upper, 1, s, j+upper, 1, n-upper);
+	}
+
+	void minMax(float[] d, int i, int ds, int n, float[] out, int o) {
+		int upper = S.loopBound(n);
+		if ((ds != 1) || (upper == 0)) {
+			super.minMax(d, i, ds, n, out, o);
+			return;
+		}
+		FloatVector vmin = FloatVector.fromArray(S, d, i);
+		FloatVector vmax = vmin;
+		for (int k=L; k<upper; k+=L) {
+			FloatVector v = FloatVector.fromArray(S, d, i+k);
+			vmin = vmin.min(v);
+			vmax = vmax.max(v);
+		}
+		float fmin = vmin.reduceLanes(VectorOperators.MIN);
+		float fmax = vmax.reduceLanes(VectorOperators.MAX);
+		for (int k=upper; k<n; k++) {
+			fmin = Math.min(fmin, d[i+k]);
+			fmax = Math.max(fmax, d[i+k]);
+		}
+		out[o] = fmin;
+		out[o+1] = fmax;
+	}
+
+	// a multiply then an add, not a true fma, so we round exactly like the scalar code
+	void affine(float[] d, int i, int ds, int n, float from, float scale, float to) {
+		if (ds != 1) {
+			super.affine(d, i, ds, n, from, scale, to);
+			return;
+		}
+		int upper = S.loopBound(n);
+		for (int k=0; k<upper; k+=L) {
+			FloatVector.fromArray(S, d, i+k).sub(from).mul(scale).add(to).intoArray(d, i+k);
+		}
+		super.affine(d, i+upper, 1, n-upper, from, scale, to);
+	}
+
+	void over(float[] Ar, float[] Ag, float[] Ab, int ai, float[] Aa, int mi,
+	          float[] Br, float[] Bg, float[] Bb, float[] Ba, int bi, int n) {
+		FloatVector one = FloatVector.broadcast(S, 1.f);
+		FloatVector zero = FloatVector.zero(S);
+		int upper = S.loopBound(n);
+		for (int k=0; k<upper; k+=L) {
+			FloatVector Aalf = (Aa != null) ? FloatVector.fromArray(S, Aa, mi+k).div(255.f) : one;
+			FloatVector Balf = (Ba != null) ? FloatVector.fromArray(S, Ba, bi+k).div(255.f) : one;
+			FloatVector b2 = one.sub(Aalf).mul(Balf);
+			FloatVector newAlf = Aalf.add(b2);
+			VectorMask<Float> empty = newAlf.compare(VectorOperators.EQ, 0.f);
+
+			FloatVector r = Aalf.mul(FloatVector.fromArray(S, Ar, ai+k)).add(b2.mul(FloatVector.fromArray(S, Br, bi+k))).div(newAlf);
+			FloatVector g = Aalf.mul(FloatVector.fromArray(S, Ag, ai+k)).add(b2.mul(FloatVector.fromArray(S, Bg, bi+k))).div(newAlf);
+			FloatVector b = Aalf.mul(FloatVector.fromArray(S, Ab, ai+k)).add(b2.mul(FloatVector.fromArray(S, Bb, bi+k))).div(newAlf);
+			r.blend(zero, empty).intoArray(Br, bi+k);
+			g.blend(zero, empty).intoArray(Bg, bi+k);
+			b.blend(zero, empty).intoArray(Bb, bi+k);
+			if (Ba != null) newAlf.mul(255.f).blend(zero, empty).intoArray(Ba, bi+k);
+		}
+		super.over(Ar, Ag, Ab, ai+upper, Aa, mi+upper, Br, Bg, Bb, Ba, bi+upper, n-upper);
+	}
+
+	void composite(float[] Ar, float[] Ag, float[] Ab, float[] Aa, int ai, float[] Am, int mi,
+	               float[] Br, float[] Bg, float[] Bb, float[] Ba, int bi, int n,
+	               float ka0, float ka1, float kb0, float kb1, boolean clamp) {
+		FloatVector one = FloatVector.broadcast(S, 1.f);
+		FloatVector opaque = FloatVector.broadcast(S, 255.f);
+		int upper = S.loopBound(n);
+		for (int k=0; k<upper; k+=L) {
+			FloatVector m = (Am != null) ? FloatVector.fromArray(S, Am, mi+k).mul(INV255) : one;
+			FloatVector aA = (Aa != null) ? FloatVector.fromArray(S, Aa, ai+k) : opaque;
+			FloatVector aB = (Ba != null) ? FloatVector.fromArray(S, Ba, bi+k) : opaque;
+			FloatVector fa = aB.mul(INV255).mul(ka1).add(ka0).mul(m);
+			FloatVector fb = aA.mul(INV255).mul(m).mul(kb1).add(kb0);
+			FloatVector r = FloatVector.fromArray(S, Ar, ai+k).mul(fa).add(FloatVector.fromArray(S, Br, bi+k).mul(fb));
+			FloatVector g = FloatVector.fromArray(S, Ag, ai+k).mul(fa).add(FloatVector.fromArray(S, Bg, bi+k).mul(fb));
+			FloatVector b = FloatVector.fromArray(S, Ab, ai+k).mul(fa).add(FloatVector.fromArray(S, Bb, bi+k).mul(fb));
+			FloatVector a = aA.mul(fa).add(aB.mul(fb));
+			if (clamp) {
+				r = r.min(255.f);
+				g = g.min(255.f);
+				b = b.min(255.f);
+				a = a.min(255.f);
+			}
+			r.intoArray(Br, bi+k);
+			g.intoArray(Bg, bi+k);
+			b.intoArray(Bb, bi+k);
+			if (Ba != null) a.intoArray(Ba, bi+k);
+		}
+		super.composite(Ar, Ag, Ab, Aa, ai+upper, Am, mi+upper, Br, Bg, Bb, Ba, bi+upper, n-upper, ka0, ka1, kb0, kb1, clamp);
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+/*************************************************
+* BLUR
+* Box blurs, Gaussian blurs, and separable kernels.
+* Everything is done in two passes, one across the rows
+* and one down the columns. Each pass copies a band of
+* lines into a scratch buffer and writes the results back
+* into the field, so bands can run on different threads.
+*
+* A box blur keeps a running sum along each line: step one
+* value, add the one coming in and take away the one going
+* out. So it costs the same for any radius. Three box blurs
+* in a row come very close to a Gaussian, and that's how
+* gaussianBlur() works.
+*
+* Past the edges of the field, we repeat the edge values.
+*************************************************/
+
+class AUBlur {
+
+	// A column pass works on this many columns at once, so its scratch
+	// buffers stay small however wide the band it's given.
+	static final int COLUMN_TILE = 32;
+
+	// blur the whole field with boxes of these radii, one after the other
+	static void box(AUField _f, int[] _radiiX, int[] _radiiY) {
+		if (_radiiX.length > 0) {
+			final int[] rx = _radiiX;
+			rowPass(_f, (buf, tmp, n, bw, sums) -> boxLines(buf, tmp, n, bw, rx, sums));
+		}
+		if (_radiiY.length > 0) {
+			final int[] ry = _radiiY;
+			colPass(_f, (buf, tmp, n, bw, sums) -> boxLines(buf, tmp, n, bw, ry, sums));
+		}
+		_f.markAllDirty();
+	}
+
+	static void convolve(AUField _f, final float[] _kernelX, final float[] _kernelY) {
+		rowPass(_f, (buf, tmp, n, bw, sums) -> kernelLines(buf, tmp, n, bw, _kernelX));
+		colPass(_f, (buf, tmp, n, bw, sums) -> kernelLines(buf, tmp, n, bw, _kernelY));
+		_f.markAllDirty();
+	}
+
+	// Radii of _passes boxes that together come closest to a Gaussian with
+	// standard deviation _sigma. Box widths are 2r+1; the first few are a
+	// size smaller than the rest so the total variance matches.
+	static int[] gaussRadii(float _sigma, int _passes) {
+		double wIdeal = Math.sqrt((12.0*_sigma*_sigma/_passes) + 1);
+		int wl = (int)Math.floor(wIdeal);
+		if (wl % 2 == 0) wl--;
+		int wu = wl + 2;
+		double mIdeal = ((12.0*_sigma*_sigma) - (_passes*wl*wl) - (4.0*_passes*wl) - (3.0*_passes)) / ((-4.0*wl) - 4);
+		int m = (int)Math.round(mIdeal);
+		int[] r = new int[_passes];
+		for (int i=0; i<_passes; i++) {
+			r[i] = ((i < m) ? wl : wu) / 2;
+		}
+		return r;
+	}
+
+	/**********************
+	 * Passes
+	 *********************/
+
+	// Works on bw lines of n values each, stored side by side in _buf:
+	// value i of line j is _buf[(i*bw)+j]. Returns whichever of _buf
+	// and _tmp ends up holding the result. _sums is scratch space for
+	// at least bw running sums, reused from call to call.
+	interface LinesOp {
+		float[] run(float[] _buf, float[] _tmp, int _n, int _bw, double[] _sums);
+	}
+
+	// each row is one line
+	static void rowPass(final AUField _f, final LinesOp _op) {
+		final int w = _f.w;
+		AUParallel.forRows(_f.h, w, (y0, y1) -> {
+			float[] buf = new float[w];
+			float[] tmp = new float[w];
+			double[] sums = new double[1];
+			for (int y=y0; y<y1; y++) {
+				int i = _f.index(0, y);
+				for (int x=0; x<w; x++, i+=_f.step) buf[x] = _f.data[i];
+				float[] out = _op.run(buf, tmp, w, 1, sums);
+				i = _f.index(0, y);
+				for (int x=0; x<w; x++, i+=_f.step) _f.data[i] = out[x];
+			}
+		});
+	}
+
+	// Each column is one line. We hand forRows() the columns as if they
+	// were rows. Each band works through its columns COLUMN_TILE at a time,
+	// going down them a row at a time, so it reads the field in order.
+	static void colPass(final AUField _f, final LinesOp _op) {
+		final int h = _f.h;
+		AUParallel.forRows(_f.w, h, (x0, x1) -> {
+			int tile = Math.min(COLUMN_TILE, x1 - x0);
+			float[] buf = new float[h*tile];
+			float[] tmp = new float[h*tile];
+			double[] sums = new double[tile];
+			for (int t0=x0; t0<x1; t0+=tile) {
+				int bw = Math.min(tile, x1 - t0);
+				for (int y=0; y<h; y++) {
+					int i = _f.index(t0, y);
+					for (int j=0, o=y*bw; j<bw; j++, o++, i+=_f.step) buf[o] = _f.data[i];
+				}
+				float[] out = _op.run(buf, tmp, h, bw, sums);
+				for (int y=0; y<h; y++) {
+					int i = _f.index(t0, y);
+					for (int j=0, o=y*bw; j<bw; j++, o++, i+=_f.step) _f.data[i] = out[o];
+				}
+			}
+		});
+	}
+
+	/**********************
+	 * Line operations
+	 *********************/
+
+	static float[] boxLines(float[] _buf, float[] _tmp, int _n, int _bw, int[] _radii, double[] _sums) {
+		for (int p=0; p<_radii.length; p++) {
+			if (_radii[p] <= 0) continue;
+			boxLines(_buf, _tmp, _n, _bw, _radii[p], _sums);
+			float[] t = _buf;
+			_buf = _tmp;
+			_tmp = t;
+		}
+		return _buf;
+	}
+
+	// One box of radius _r from _src into _dst. The sums are doubles so
+	// that adding and taking away doesn't slowly drift on long lines.
+	static void boxLines(float[] _src, float[] _dst, int _n, int _bw, int _r, double[] _sums) {
+		int last = _n - 1;
+		double scl = 1.0 / ((2*_r) + 1);
+		// the sum for value 0 is r+1 copies of the edge, then values 1..r
+		int inside = Math.min(_r, last);
+		for (int j=0; j<_bw; j++) _sums[j] = (_r+1) * (double)_src[j];
+		for (int k=1; k<=inside; k++) {
+			int o = k*_bw;
+			for (int j=0; j<_bw; j++) _sums[j] += _src[o+j];
+		}
+		if (_r > inside) {
+			int o = last*_bw;
+			for (int j=0; j<_bw; j++) _sums[j] += (_r-inside) * (double)_src[o+j];
+		}
+		for (int i=0; i<_n; i++) {
+			int o = i*_bw;
+			for (int j=0; j<_bw; j++) _dst[o+j] = (float)(_sums[j] * scl);
+			if (i == last) break;
+			int in = Math.min(i+1+_r, last) * _bw;
+			int out = Math.max(i-_r, 0) * _bw;
+			for (int j=0; j<_bw; j++) _sums[j] += _src[in+j] - _src[out+j];
+		}
+	}
+
+	// _kernel has an odd length and is centered on its middle entry
+	static float[] kernelLines(float[] _buf, float[] _tmp, int _n, int _bw, float[] _kernel) {
+		int c = _kernel.length / 2;
+		int last = _n - 1;
+		for (int i=0; i<_n; i++) {
+			int o = i*_bw;
+			java.util.Arrays.fill(_tmp, o, o+_bw, 0.f);
+			for (int t=0; t<_kernel.length; t++) {
+				float k = _kernel[t];
+				int s = Math.max(0, Math.min(last, i+t-c)) * _bw;
+				for (int j=0; j<_bw; j++) _tmp[o+j] += k * _buf[s+j];
+			}
+		}
+		return _tmp;
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+
+import processing.core.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*************************************************
+* BUFFER FIELDS
+* A field whose floats live outside the Java heap, for
+* fields too big to sit comfortably in it (say 20000 x
+* 20000, which is 1.6GB). It has many of AUField's
+* methods (see AURowField), and the garbage collector
+* never has to look at the values. It's not an AUField,
+* though; convert with toField() and fromField().
+*
+* new AUBufferField(this, w, h) uses direct memory. Java
+*   caps that with -XX:MaxDirectMemorySize, which defaults
+*   to the heap size, so you may need to raise it.
+* new AUBufferField(this, w, h, "big.field") maps the
+*   file instead, and the OS pages values in and out as
+*   we use them. An existing file keeps its values, so you
+*   can come back to a field later. Call flush() to make
+*   sure everything has been written to the file.
+*
+* A single buffer holds at most 2GB, so we split the
+* field into chunks of whole rows.
+*************************************************/
+
+public class AUBufferField extends AURowField {
+
+	static long maxChunkBytes = 1L << 30;   // well under the 2GB a buffer can hold
+
+	String filePath;                 // null if we're in direct memory
+	FloatBuffer[] chunks;            // rows [c*rowsPerChunk, (c+1)*rowsPerChunk) are in chunks[c]
+	MappedByteBuffer[] mapped;       // the same memory, for flush(); null if not mapped
+	int rowsPerChunk;
+
+	/**********************
+	 * Constructors
+	 *********************/
+
+	public AUBufferField(PApplet _theSketch, int _wid, int _hgt) {
+		super(_theSketch, _wid, _hgt);
+		if (_theSketch == null) {
+			AULib.reportError("AUBufferField", "AUBufferField", "theSketch is null", "");
+		}
+		allocateDirect();
+	}
+
+	public AUBufferField(PApplet _theSketch, int _wid, int _hgt, String _path) {
+		super(_theSketch, _wid, _hgt);
+		if (_theSketch == null) {
+			AULib.reportError("AUBufferField", "AUBufferField", "theSketch is null", "");
+		}
+		if (!map(_path)) allocateDirect();
+	}
+
+	void setupChunks() {
+		rowsPerChunk = (int)Math.max(1, Math.min(h, maxChunkBytes / (4L*w)));
+		chunks = new FloatBuffer[(h + rowsPerChunk - 1) / rowsPerChunk];
+	}
+
+	long chunkBytes(int _c) {
+		int rows = Math.min(rowsPerChunk, h - (_c*rowsPerChunk));
+		return 4L * w * rows;
+	}
+
+	void allocateDirect() {
+		filePath = null;
+		mapped = null;
+		setupChunks();
+		for (int c=0; c<chunks.length; c++) {
+			chunks[c] = ByteBuffer.allocateDirect((int)chunkBytes(c)).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		}
+	}
+
+	// Map the field onto the file at _path. Returns false, after reporting why, if we can't.
+	boolean map(String _path) {
+		String path = (theSketch != null) ? theSketch.sketchPath(_path) : _path;
+		setupChunks();
+		mapped = new MappedByteBuffer[chunks.length];
+		try (RandomAccessFile raf = new RandomAccessFile(new File(path), "rw")) {
+			FileChannel channel = raf.getChannel();
+			long start = 0;
+			for (int c=0; c<chunks.length; c++) {
+				long len = chunkBytes(c);
+				mapped[c] = channel.map(FileChannel.MapMode.READ_WRITE, start, len);
+				chunks[c] = mapped[c].order(ByteOrder.nativeOrder()).asFloatBuffer();
+				start += len;
+			}
+		} catch (IOException e) {
+			AULib.reportError("AUBufferField", "map", "could not map the file, using direct memory instead", path+": "+e.getMessage());
+			return false;
+		}
+		filePath = path;
+		return true;
+	}
+
+	public boolean isMapped() {
+		return filePath != null;
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	// write any changed values out to the file (does nothing in direct memory)
+	public void flush() {
+		if (mapped == null) return;
+		for (int c=0; c<mapped.length; c++) mapped[c].force();
+	}
+
+	/**********************
+	 * Rows and values
+	 *********************/
+
+	public float get(int _x, int _y) {
+		return chunks[_y / rowsPerChunk].get(((_y % rowsPerChunk) * w) + _x);
+	}
+
+	public void set(int _x, int _y, float _v) {
+		chunks[_y / rowsPerChunk].put(((_y % rowsPerChunk) * w) + _x, _v);
+	}
+
+	// Buffers have a single position, so each call works on its own duplicate.
+	// That makes it safe to read and write different rows from different threads.
+	void getRow(int _y, float[] _dst) {
+		FloatBuffer b = chunks[_y / rowsPerChunk].duplicate();
+		b.position((_y % rowsPerChunk) * w);
+		b.get(_dst, 0, w);
+	}
+
+	void setRow(int _y, float[] _src) {
+		FloatBuffer b = chunks[_y / rowsPerChunk].duplicate();
+		b.position((_y % rowsPerChunk) * w);
+		b.put(_src, 0, w);
+	}
+
+	// a copy in direct memory
+	public AUBufferField dupe() {
+		AUBufferField f = new AUBufferField(theSketch, w, h);
+		copy(f);
+		return f;
+	}
+}
@@ -29,6 +29,13 @@ package AULib;
 
 
 import processing.core.*;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 
@@ -55,6 +62,7 @@ public class AUCamera {
 	public static final int SHUTTER_BLADE_DOWN = 4;	// blade moving down
 	public static final int SHUTTER_BLADE_UP = 5;		// blade moving up
 	public static final int SHUTTER_IRIS = 6;				// circular iris
+	public static final int SHUTTER_CUSTOM = 7;			// your own AUShutterShape
 	
 	AUMultiField exposure;
 	int numFrames, numExposures;
@@ -64,10 +72,46 @@ public class AUCamera {
 	float rampTime, blendTime;
 	int shutterType;
 	int frameNumber, exposureNumber;
-	AUField shutter;
-	PGraphics shutterPG, savePG;
 	int preRoll;
 	
+	// Shutter masks: the IRIS and CUSTOM shutters weight each pixel by a mask. A mask
+	// only depends on the exposure value, so we keep the ones we've made, keyed by
+	// that value. A frame uses the same values in the same order every time, so we
+	// keep enough for all of one frame's values, and after the first frame no masks
+	// are made. With maxMaskBytes set (see setMaxMaskCacheBytes()), we drop the least
+	// recently used past that. See setShutterShape(). With compactMasks on, they're
+	// kept in 2 bytes per pixel instead of 4; see setCompactMasks().
+	AUShutterShape shutterShape = null;
+	LinkedHashMap<Float, AUField> masks = new LinkedHashMap<Float, AUField>(16, .75f, true);
+	LinkedHashMap<Float, AUCompactField> compactMasks = new LinkedHashMap<Float, AUCompactField>(16, .75f, true);
+	boolean useCompactMasks = false;
+	long maxMaskBytes = -1;              // no cap
+	boolean maskCapWarned = false;
+	int maskBuilds = 0;
+	
+	// Async saving: each frame is copied into one of a few images and handed to
+	// background threads to encode and write, while we carry on. See setAsyncSave().
+	boolean asyncSave = false;
+	int saveThreads = 2;
+	int maxPendingSaves = 4;             // images in flight; past this, saveNow() waits
+	ExecutorService saver = null;
+	ArrayBlockingQueue<PImage> freeImages = null;
+	int imagesMade = 0;
+	
+	// Frame sink: if there is one, finished frames go to it straight from the
+	// exposure instead of being saved as images. See setFrameSink().
+	AUFrameSink frameSink = null;
+	boolean frameSinkBegun = false;
+	
+	// Packed accumulation: the OPEN and BLADE shutters add whole pixels, so their
+	// sums are integers. We keep them in one long per pixel, 21 bits per channel
+	// (red at bit 42, green at 21, blue at 0), and add a pixel with a single add.
+	// The sums go into the exposure once a frame. See setPackedAccumulation().
+	static final int PACKED_MAX_EXPOSURES = ((1 << 21) - 1) / 255;   // 8224 before a channel could overflow
+	boolean packedAccumulation = false;
+	long[] packedSums = null;
+	int packedCount = 0;                 // exposures in packedSums since we last folded them in
+	
 	public AUCamera(PApplet _theSketch, int _numFrames, int _numExposures, boolean _saveFrames) {
 		if (_theSketch == null) {
 			AULib.reportError("AUCamera", "AUCamera", "theSketch is null", "");
@@ -87,11 +131,9 @@ public class AUCamera {
 		shutterType = SHUTTER_OPEN;
 		frameNumber = 0;
 		exposureNumber = 0;
-		shutter = new AUField(theSketch, theSketch.width, theSketch.height);
-		shutterPG = theSketch.createGraphics(theSketch.width, theSketch.height);
-		savePG = theSketch.createGraphics(theSketch.width, theSketch.height);
 		preRoll = 0;
 		timeWrap = true;
+		theSketch.registerMethod("dispose", this);
 	}
 	
 	// individual value setters
@@ -104,8 +146,95 @@ public class AUCamera {
 	public void setSavePath(String _savePath)		{ savePath = _savePath; }
 	public void setRampTime(float _rampTime)		{ rampTime = _rampTime; }
 	public void setBlendtime(float _blendTime)		{ blendTime = _blendTime; }
-	public void setShutterType(int _shutterType)	{ shutterType = _shutterType; }
 	public void setTimeWrap(boolean _timeWrap)      { timeWrap = _timeWrap; }
+	public boolean isAsyncSave()                    { return asyncSave; }
+	public boolean isPackedAccumulation()           { return packedAccumulation; }
+	public boolean isCompactMasks()                 { return useCompactMasks; }
+	public int getMaskBuilds()                      { return maskBuilds; }
+	
+	public void setShutterType(int _shutterType) {
+		if ((_shutterType == SHUTTER_CUSTOM) && (shutterShape == null)) {
+			AULib.reportError("AUCamera", "setShutterType", "call setShutterShape() to give SHUTTER_CUSTOM a shape", "");
+			return;
+		}
+		if (_shutterType != shutterType) clearMasks();
+		shutterType = _shutterType;
+	}
+	
+	// Use _shape for the shutter, and switch to SHUTTER_CUSTOM.
+	public void setShutterShape(AUShutterShape _shape) {
+		if (_shape == null) {
+			AULib.reportError("AUCamera", "setShutterShape", "the shape is null", "");
+			return;
+		}
+		shutterShape = _shape;
+		shutterType = SHUTTER_CUSTOM;
+		clearMasks();
+	}
+	
+	// By default we keep a mask for each different exposure value in a frame, which
+	// is 4 bytes a pixel for each (see distinctExposureValues()). If that's too much,
+	// masks past _bytes are thrown away and made again when they're needed. We always
+	// keep at least one. If a frame's masks don't fit, every frame makes them all
+	// again, and we say so once. A _bytes less than 0 goes back to no cap.
+	public void setMaxMaskCacheBytes(long _bytes) {
+		maxMaskBytes = (_bytes < 0) ? -1 : _bytes;
+		maskCapWarned = false;
+		trimMasks(masks, maxMasks(4));
+		trimMasks(compactMasks, maxMasks(2));
+	}
+	
+	// Keep the IRIS and CUSTOM masks as 16-bit fixed point over [0, 1] (see
+	// AUCompactField), in half the memory. Each weight is then off
+	// by at most 1/131070, so frames can differ from float masks by a rounding step.
+	// Only the masks are compact; the exposure is still three float fields.
+	public void setCompactMasks(boolean _compact) {
+		useCompactMasks = _compact;
+		clearMasks();
+	}
+
+	
+	// With packed accumulation on, the OPEN and BLADE shutters add each pixel to one
+	// long instead of three floats, and we only unpack the sums once a frame. The
+	// frames come out the same. It costs 8 bytes per pixel; other shutters are unaffected.
+	public void setPackedAccumulation(boolean _packed) {
+		foldPackedSums();
+		packedAccumulation = _packed;
+		if (!_packed) packedSums = null;
+	}
+	
+	// With async saving on, a finished frame is copied into a spare image and saved
+	// by background threads, so the next exposure can start right away. At most
+	// _maxPending frames are waiting or being saved; the next one waits for a spot.
+	// The frames are the same files a normal save would make, but the exposure
+	// isn't drawn into the window first. Everything still waiting is saved before
+	// the sketch exits, or when you call flushSaves().
+	public void setAsyncSave(boolean _asyncSave) {
+		setAsyncSave(_asyncSave, 2, 4);
+	}
+	
+	public void setAsyncSave(boolean _asyncSave, int _threads, int _maxPending) {
+		flushSaves();
+		asyncSave = _asyncSave;
+		saveThreads = Math.max(1, _threads);
+		maxPendingSaves = Math.max(1, _maxPending);
+		freeImages = null;
+		imagesMade = 0;
+	}
+	
+	// Send the finished frames to _sink (see AUFrameSink) rather than saving them
+	// with the sketch. The sink is closed when the sketch exits, or when you set
+	// another one. A null sink goes back to saving images.
+	public void setFrameSink(AUFrameSink _sink) {
+		endFrameSink();
+		frameSink = _sink;
+	}
+	
+	void endFrameSink() {
+		if ((frameSink != null) && frameSinkBegun) frameSink.end();
+		frameSinkBegun = false;
+	}
+	
 	public void setPreRoll(int _preRoll)            { 
 		if (_preRoll < 0) {
 			AULib.reportError("AUCamera", "setPreRoll", "preRoll is less than 0, using absolute value instead.", "");
@@ -156,74 +285,190 @@ public class AUCamera {
 				exposeShutterBlade(v);
 				break;
 			case SHUTTER_IRIS:
-				buildShutter();
-				exposeWithShutter(shutter);
+			case SHUTTER_CUSTOM:
+				if (useCompactMasks) {
+					exposeWithShutter(compactShutterMask(v));
+				} else {
+					exposeWithShutter(shutterMask(v));
+				}
 				break;
 		}
+		exposure.markAllDirty();
 		checkToSave(doSaveFile);
 	}
 	
+	// All of these split the rows into bands with AUParallel. Each band only
+	// touches its own rows of the exposure, so the sums come out the same.
+	
 	void exposeOpenShutter() {
-		for (int y=0; y<theSketch.height; y++) {
-			for (int x=0; x<theSketch.width; x++) {
-				int c = theSketch.pixels[(y*theSketch.width)+x];
-				exposure.fields[0].z[y][x] += AUMisc.jred(c);
-				exposure.fields[1].z[y][x] += AUMisc.jgreen(c);
-				exposure.fields[2].z[y][x] += AUMisc.jblue(c);
-			}
+		if (packedAccumulation) {
+			addPixelsPacked(0, theSketch.width, 0, theSketch.height);
+		} else {
+			addPixels(0, theSketch.width, 0, theSketch.height, 1.f);
 		}
 	}
 	
 	void exposeShutterUniform(float v) {
-		for (int y=0; y<theSketch.height; y++) {
-			for (int x=0; x<theSketch.width; x++) {
-				int c = theSketch.pixels[(y*theSketch.width)+x];
-				exposure.fields[0].z[y][x] += v * AUMisc.jred(c);
-				exposure.fields[1].z[y][x] += v * AUMisc.jgreen(c);
-				exposure.fields[2].z[y][x] += v * AUMisc.jblue(c);
-			}
-		}
+		addPixels(0, theSketch.width, 0, theSketch.height, v);
 	}
 	
+	// The blade uncovers a rectangle, so rather than testing each pixel we work out
+	// its edges. For whole numbers x, x < t is the same as x < ceil(t), and x > t is
+	// the same as x >= floor(t)+1.
 	void exposeShutterBlade(float v) {
-		for (int y=0; y<theSketch.height; y++) {
-			for (int x=0; x<theSketch.width; x++) {
-				boolean addIn = false;
-				switch (shutterType) {
-					default:
-					case SHUTTER_BLADE_RIGHT:
-						addIn = x < theSketch.width*v;
-						break;
-					case SHUTTER_BLADE_LEFT:
-						addIn = x > (theSketch.width*(1-v));
-						break;
-					case SHUTTER_BLADE_DOWN:
-						addIn = y < theSketch.height*v;
-						break;
-					case SHUTTER_BLADE_UP:
-						addIn = y > (theSketch.height*(1-v));
-						break;
-				}
-				if (addIn) {
-					int c = theSketch.pixels[(y*theSketch.width)+x];
-					exposure.fields[0].z[y][x] += AUMisc.jred(c);
-					exposure.fields[1].z[y][x] += AUMisc.jgreen(c);
-					exposure.fields[2].z[y][x] += AUMisc.jblue(c);
+		int wid = theSketch.width;
+		int hgt = theSketch.height;
+		int x0 = 0, x1 = wid, y0 = 0, y1 = hgt;
+		switch (shutterType) {
+			default:
+			case SHUTTER_BLADE_RIGHT:
+				x1 = (int)Math.ceil(wid*v);
+				break;
+			case SHUTTER_BLADE_LEFT:
+				x0 = (int)Math.floor(wid*(1-v)) + 1;
+				break;
+			case SHUTTER_BLADE_DOWN:
+				y1 = (int)Math.ceil(hgt*v);
+				break;
+			case SHUTTER_BLADE_UP:
+				y0 = (int)Math.floor(hgt*(1-v)) + 1;
+				break;
+		}
+		x0 = Math.max(0, x0);
+		y0 = Math.max(0, y0);
+		x1 = Math.min(wid, x1);
+		y1 = Math.min(hgt, y1);
+		if (packedAccumulation) {
+			addPixelsPacked(x0, x1, y0, y1);
+		} else {
+			addPixels(x0, x1, y0, y1, 1.f);
+		}
+	}
+	
+	// add _v times the pixels in columns [_x0,_x1) of rows [_y0,_y1) into the exposure
+	void addPixels(final int _x0, final int _x1, final int _y0, final int _y1, final float _v) {
+		if ((_x0 >= _x1) || (_y0 >= _y1)) return;
+		final AUField r = exposure.fields[0];
+		final AUField g = exposure.fields[1];
+		final AUField b = exposure.fields[2];
+		final int wid = theSketch.width;
+		final int[] pix = theSketch.pixels;
+		AUParallel.forRows(_y1-_y0, _x1-_x0, (b0, b1) -> {
+			for (int y=_y0+b0; y<_y0+b1; y++) {
+				int ri = r.index(_x0, y);
+				int gi = g.index(_x0, y);
+				int bi = b.index(_x0, y);
+				for (int p=(y*wid)+_x0, end=p+(_x1-_x0); p<end; p++, ri+=r.step, gi+=g.step, bi+=b.step) {
+					int c = pix[p];
+					r.data[ri] += _v * AUMisc.jred(c);
+					g.data[gi] += _v * AUMisc.jgreen(c);
+					b.data[bi] += _v * AUMisc.jblue(c);
 				}
 			}
-		}
+		});
 	}
 	
 	void exposeWithShutter(AUField thisShutter) {
-		for (int y=0; y<theSketch.height; y++) {
-			for (int x=0; x<theSketch.width; x++) {
-				int c = theSketch.pixels[(y*theSketch.width)+x];
-				float w = thisShutter.z[y][x];
-				exposure.fields[0].z[y][x] += w * AUMisc.jred(c);
-				exposure.fields[1].z[y][x] += w * AUMisc.jgreen(c);
-				exposure.fields[2].z[y][x] += w * AUMisc.jblue(c);
+		final AUField r = exposure.fields[0];
+		final AUField g = exposure.fields[1];
+		final AUField b = exposure.fields[2];
+		final AUField s = thisShutter;
+		final int wid = theSketch.width;
+		final int[] pix = theSketch.pixels;
+		AUParallel.forRows(theSketch.height, wid, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int ri = r.index(0, y);
+				int gi = g.index(0, y);
+				int bi = b.index(0, y);
+				int j = s.index(0, y);
+				for (int p=y*wid, end=p+wid; p<end; p++, ri+=r.step, gi+=g.step, bi+=b.step, j+=s.step) {
+					int c = pix[p];
+					float w = s.data[j];
+					r.data[ri] += w * AUMisc.jred(c);
+					g.data[gi] += w * AUMisc.jgreen(c);
+					b.data[bi] += w * AUMisc.jblue(c);
+				}
 			}
-		}
+		});
+	}
+	
+	// the same, reading the mask a row at a time
+	void exposeWithShutter(final AUCompactField thisShutter) {
+		final AUField r = exposure.fields[0];
+		final AUField g = exposure.fields[1];
+		final AUField b = exposure.fields[2];
+		final int wid = theSketch.width;
+		final int[] pix = theSketch.pixels;
+		AUParallel.forRows(theSketch.height, wid, (y0, y1) -> {
+			float[] wgt = new float[wid];
+			for (int y=y0; y<y1; y++) {
+				thisShutter.getRow(y, wgt);
+				int ri = r.index(0, y);
+				int gi = g.index(0, y);
+				int bi = b.index(0, y);
+				for (int p=y*wid, x=0; x<wid; x++, p++, ri+=r.step, gi+=g.step, bi+=b.step) {
+					int c = pix[p];
+					float w = wgt[x];
+					r.data[ri] += w * AUMisc.jred(c);
+					g.data[gi] += w * AUMisc.jgreen(c);
+					b.data[bi] += w * AUMisc.jblue(c);
+				}
+			}
+		});
+	}
+	
+	// the pixel c spread out into packed form
+	static long packPixel(int c) {
+		return (((long)(c & 0xFF0000)) << 26) | (((long)(c & 0xFF00)) << 13) | (c & 0xFF);
+	}
+	
+	// the packed sums, ready for one more exposure
+	long[] packedSumsForExposure() {
+		if (packedSums == null) packedSums = new long[theSketch.width * theSketch.height];
+		if (packedCount >= PACKED_MAX_EXPOSURES) foldPackedSums();
+		packedCount++;
+		return packedSums;
+	}
+	
+	// like addPixels() with a weight of 1, into the packed sums
+	void addPixelsPacked(final int _x0, final int _x1, final int _y0, final int _y1) {
+		final long[] sums = packedSumsForExposure();
+		final int wid = theSketch.width;
+		final int[] pix = theSketch.pixels;
+		AUParallel.forRows(_y1-_y0, _x1-_x0, (b0, b1) -> {
+			for (int y=_y0+b0; y<_y0+b1; y++) {
+				for (int p=(y*wid)+_x0, end=p+(_x1-_x0); p<end; p++) {
+					sums[p] += packPixel(pix[p]);
+				}
+			}
+		});
+	}
+	
+	// add the packed sums into the exposure, and start them over
+	void foldPackedSums() {
+		if ((packedSums == null) || (packedCount == 0)) return;
+		final long[] sums = packedSums;
+		final AUField r = exposure.fields[0];
+		final AUField g = exposure.fields[1];
+		final AUField b = exposure.fields[2];
+		final int wid = Math.min(exposure.w, theSketch.width);
+		final int rowLen = theSketch.width;
+		AUParallel.forRows(Math.min(exposure.h, theSketch.height), wid, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int ri = r.index(0, y);
+				int gi = g.index(0, y);
+				int bi = b.index(0, y);
+				for (int p=y*rowLen, end=p+wid; p<end; p++, ri+=r.step, gi+=g.step, bi+=b.step) {
+					long sum = sums[p];
+					r.data[ri] += (sum >>> 42) & 0x1FFFFF;
+					g.data[gi] += (sum >>> 21) & 0x1FFFFF;
+					b.data[bi] += sum & 0x1FFFFF;
+					sums[p] = 0;
+				}
+			}
+		});
+		packedCount = 0;
+		exposure.markAllDirty();
 	}
 	
 	void checkToSave(boolean doSaveFile) {
@@ -239,6 +484,7 @@ public class AUCamera {
 		}
 		if ((++exposureNumber >= numExposures) && autoSave) {
 			if (numExposures < 1) numExposures = 1;
+			foldPackedSums();
 			if (autoNormalize255) {
 				exposure.setRangeTogether(0, 255, 3); 
 			} else {	// just average
@@ -256,48 +502,116 @@ public class AUCamera {
 		}
 	}
 	
-	// I now have special code for the OPEN, UNIFORM, and BLADE shutters,
-	// but I'll leave the masks here as examples of the technique
-	void buildShutter() {
-		float v = getExposureValue();
-		shutterPG.beginDraw();
-		shutterPG.background(0);
-		shutterPG.fill(255);
-		switch (shutterType) {
-			default:
-			case SHUTTER_OPEN:
-				shutterPG.background(255);
-				break;
-			case SHUTTER_UNIFORM:
-				shutterPG.background(255 * v);
-				break;
-			case SHUTTER_BLADE_RIGHT:
-				shutterPG.rect(0, 0, theSketch.width*v, theSketch.height);
-				break;
-			case SHUTTER_BLADE_LEFT:
-				shutterPG.rect(theSketch.width*(1-v), 0, theSketch.width*v, theSketch.height);
-				break;
-			case SHUTTER_BLADE_DOWN:
-				shutterPG.rect(0, 0, theSketch.width, theSketch.height*v); 
-				break;
-			case SHUTTER_BLADE_UP:
-				shutterPG.rect(0, theSketch.height*(1-v), theSketch.width, theSketch.height*v);
-				break;
-			case SHUTTER_IRIS:
-				float maxr = AUMisc.jmag(theSketch.width/2.f, theSketch.height/2.f);
-				shutterPG.ellipse(theSketch.width/2.f, theSketch.height/2.f, 2*v*maxr, 2*v*maxr);
-				break;
+	// The iris opens from the middle. Each pixel is covered by the part of the
+	// disk within half a pixel of its center, which smooths the edge.
+	static final AUShutterShape IRIS = new AUShutterShape() {
+		public float open(int _x, int _y, int _w, int _h, float _v) {
+			float maxr = AUMisc.jmag(_w/2.f, _h/2.f);
+			float d = AUMisc.jmag((_x+.5f) - (_w/2.f), (_y+.5f) - (_h/2.f));
+			return AUMisc.jconstrain((_v*maxr) - d + .5f, 0.f, 1.f);
+		}
+	};
+	
+	// the mask for exposure value _v, made and saved if we don't have it already
+	AUField shutterMask(float _v) {
+		AUField mask = masks.get(_v);
+		if (mask != null) return mask;
+		maskBuilds++;
+		mask = trimMasks(masks, maskCacheSize(4) - 1);
+		if (mask == null) mask = new AUField(theSketch, theSketch.width, theSketch.height);
+		final AUShutterShape shape = (shutterType == SHUTTER_CUSTOM) ? shutterShape : IRIS;
+		final AUField m = mask;
+		final int wid = theSketch.width;
+		final int hgt = theSketch.height;
+		final float v = _v;
+		AUParallel.forRows(hgt, wid, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int i = m.index(0, y);
+				for (int x=0; x<wid; x++, i+=m.step) {
+					m.data[i] = shape.open(x, y, wid, hgt, v);
+				}
+			}
+		});
+		masks.put(_v, mask);
+		return mask;
+	}
+	
+	// the same, for compact masks
+	AUCompactField compactShutterMask(float _v) {
+		AUCompactField mask = compactMasks.get(_v);
+		if (mask != null) return mask;
+		maskBuilds++;
+		mask = trimMasks(compactMasks, maskCacheSize(2) - 1);
+		if (mask == null) mask = new AUCompactField(theSketch, theSketch.width, theSketch.height, AUCompactField.STORAGE_FIXED16, 0, 1);
+		final AUShutterShape shape = (shutterType == SHUTTER_CUSTOM) ? shutterShape : IRIS;
+		final AUCompactField m = mask;
+		final int wid = theSketch.width;
+		final int hgt = theSketch.height;
+		final float v = _v;
+		AUParallel.forRows(hgt, wid, (y0, y1) -> {
+			float[] row = new float[wid];
+			for (int y=y0; y<y1; y++) {
+				for (int x=0; x<wid; x++) row[x] = shape.open(x, y, wid, hgt, v);
+				m.setRow(y, row);
+			}
+		});
+		compactMasks.put(_v, mask);
+		return mask;
+	}
+	
+	// How many masks to keep: one for each exposure value in a frame, or as many
+	// masks of _bytesPerValue bytes a pixel as fit in maxMaskBytes. Always at least 1.
+	int maxMasks(int _bytesPerValue) {
+		if (maxMaskBytes < 0) return Math.max(1, distinctExposureValues());
+		long bytes = (long)_bytesPerValue * theSketch.width * theSketch.height;
+		return (int)Math.max(1, Math.min(Integer.MAX_VALUE, maxMaskBytes / Math.max(1, bytes)));
+	}
+	
+	// maxMasks(), saying so once if a frame's masks don't fit
+	int maskCacheSize(int _bytesPerValue) {
+		int n = maxMasks(_bytesPerValue);
+		int cycle = distinctExposureValues();
+		if ((n < cycle) && !maskCapWarned) {
+			AULib.reportError("AUCamera", "setMaxMaskCacheBytes", "a frame needs "+cycle+" shutter masks but only "+n+" fit, so they'll be made again every frame", "maxMaskBytes="+maxMaskBytes);
+			maskCapWarned = true;
 		}
-		shutterPG.endDraw();
-		shutter.fromPixels(AUField.FIELD_LUM, shutterPG);
-		shutter.mul(1/255.f);
+		return n;
+	}
+	
+	// the number of different exposure values over one frame
+	int distinctExposureValues() {
+		HashSet<Float> values = new HashSet<Float>();
+		for (int e=0; e<numExposures; e++) values.add(exposureValue(e));
+		return values.size();
+	}
+	
+	void clearMasks() {
+		masks.clear();
+		compactMasks.clear();
+	}
+	
+	// Drop the least recently used masks until there are at most _n, and
+	// return the last one dropped (or null) so it can be reused.
+	static <T> T trimMasks(LinkedHashMap<Float, T> _masks, int _n) {
+		T dropped = null;
+		Iterator<T> it = _masks.values().iterator();
+		while ((_masks.size() > _n) && it.hasNext()) {
+			dropped = it.next();
+			it.remove();
+		}
+		return dropped;
 	}
 	
 	// given where we are in the exposure, find how much to weight this image's contribution
 	float getExposureValue() {
+		return exposureValue(exposureNumber);
+	}
+	
+	// the weight of exposure _exposureNumber of a frame
+	float exposureValue(int _exposureNumber) {
 		float r = rampTime;
 		float w = blendTime * rampTime;
-		float a = AUMisc.jnorm(exposureNumber, 0, numExposures);
+		float a = AUMisc.jnorm(_exposureNumber, 0, numExposures);
 		a = AUMisc.jconstrain(a, 0f, 1f);
 		float rampIn = AUMisc.jnorm(a, 0, r+w);
 		if (a < r-w) {
@@ -320,13 +634,100 @@ public class AUCamera {
 	
 	// save the current exposure to a file
 	void saveNow() {
-		exposure.RGBtoPixels(0, 0);
+		if (frameSink != null) {
+			if (!frameSinkBegun) {
+				frameSink.begin(exposure.w, exposure.h);
+				frameSinkBegun = true;
+			}
+			frameSink.writeFrame(exposure, frameNumber);
+			return;
+		}
 		String path = savePath + "/frame" + PApplet.nf(frameNumber, 5) + "." + saveFormat;
+		if (asyncSave) {
+			saveLater(path);
+			return;
+		}
+		exposure.RGBtoPixels(0, 0);
 		theSketch.save(path);
 	}
 	
+	// Copy the exposure into a spare image, just as RGBtoPixels() would write it,
+	// and queue it. savePath() makes the folders and the absolute path here on our
+	// thread, since an image with no parent sketch can only save to an absolute path.
+	void saveLater(String _path) {
+		final PImage img = takeImage();
+		final AUField r = exposure.fields[0];
+		final AUField g = exposure.fields[1];
+		final AUField b = exposure.fields[2];
+		final int w = exposure.w;
+		AUParallel.forRows(exposure.h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				AUPixels.rgbRow(r, g, b, 0, y, null, 0, 0, img.pixels, y*w, w, false);
+			}
+		});
+		final String fullPath = theSketch.savePath(_path);
+		final ArrayBlockingQueue<PImage> free = freeImages;
+		if (saver == null) {
+			saver = Executors.newFixedThreadPool(saveThreads, (task) -> {
+				Thread t = new Thread(task, "AUCamera saver");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		saver.execute(() -> {
+			try {
+				if (!img.save(fullPath)) {
+					AULib.reportError("AUCamera", "saveNow", "could not save the frame", fullPath);
+				}
+			} catch (RuntimeException e) {
+				AULib.reportError("AUCamera", "saveNow", "could not save the frame", fullPath+": "+e);
+			} finally {
+				free.offer(img);
+			}
+		});
+	}
+	
+	// a spare image, making a new one if we haven't made them all yet, or else waiting for one
+	PImage takeImage() {
+		if (freeImages == null) freeImages = new ArrayBlockingQueue<PImage>(maxPendingSaves);
+		PImage img = freeImages.poll();
+		if (img != null) return img;
+		if (imagesMade < maxPendingSaves) {
+			imagesMade++;
+			return new PImage(exposure.w, exposure.h, PConstants.RGB);
+		}
+		try {
+			return freeImages.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			AULib.reportError("AUCamera", "saveNow", "interrupted while waiting for a frame to finish saving", "");
+			return new PImage(exposure.w, exposure.h, PConstants.RGB);
+		}
+	}
+	
+	// wait until every queued frame has been saved
+	public void flushSaves() {
+		if (saver == null) return;
+		saver.shutdown();
+		try {
+			while (!saver.awaitTermination(1, TimeUnit.SECONDS)) { }
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			AULib.reportError("AUCamera", "flushSaves", "interrupted before all frames were saved", "");
+		}
+		saver = null;
+	}
+	
+	// Processing calls this when the sketch shuts down
+	public void dispose() {
+		flushSaves();
+		endFrameSink();
+	}
+	
 	// this doesn't exit immediately, but instead the next time draw() finishes
 	void exitNow() {
+		flushSaves();
+		endFrameSink();
 		theSketch.exit();
 	}
 		
@@ -0,0 +1,296 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+
+import processing.core.*;
+
+/*************************************************
+* COMPACT FIELDS
+* A field that stores each value in 1 or 2 bytes instead
+* of 4. It has many of AUField's methods (see AURowField),
+* but it isn't an AUField, so it can't go where one is
+* expected; convert with toField() and fromField().
+* Values are converted to floats when you read them and
+* back when you write them. Bulk operations run a row at
+* a time through a float buffer, using the same kernels.
+*
+* STORAGE_HALF     16-bit floats. About 3 decimal digits,
+*                  any range up to 65504.
+* STORAGE_BYTE     0..255 steps spread evenly over [lo, hi]
+* STORAGE_FIXED16  0..65535 steps spread evenly over [lo, hi]
+*
+* For BYTE and FIXED16, values outside [lo, hi] are clamped.
+* The range defaults to [0, 255], which suits pixel values.
+* If you're going to normalize(), use [0, 1] instead.
+*************************************************/
+
+public class AUCompactField extends AURowField {
+
+	public static final int STORAGE_HALF = 0;
+	public static final int STORAGE_BYTE = 1;
+	public static final int STORAGE_FIXED16 = 2;
+
+	// every 16-bit float, decoded
+	static final float[] HALF_TO_FLOAT = buildHalfTable();
+
+	public int storage;
+	public float lo, hi;
+
+	// value (x,y) is at [(y*w)+x] of whichever of these the storage uses
+	short[] shorts;
+	byte[] bytes;
+
+	float qscale, dscale;    // value to step, and step to value, for BYTE and FIXED16
+	float[] byteTable;       // every BYTE step, decoded
+
+	/**********************
+	 * Constructors
+	 *********************/
+
+	public AUCompactField(PApplet _theSketch, int _wid, int _hgt, int _storage) {
+		this(_theSketch, _wid, _hgt, _storage, 0, 255);
+	}
+
+	public AUCompactField(PApplet _theSketch, int _wid, int _hgt, int _storage, float _lo, float _hi) {
+		super(_theSketch, _wid, _hgt);
+		if (_theSketch == null) {
+			AULib.reportError("AUCompactField", "AUCompactField", "theSketch is null", "");
+		}
+		if ((_storage != STORAGE_HALF) && (_storage != STORAGE_BYTE) && (_storage != STORAGE_FIXED16)) {
+			AULib.reportError("AUCompactField", "AUCompactField", "unknown storage, using STORAGE_HALF", "storage="+_storage);
+			_storage = STORAGE_HALF;
+		}
+		if (!(_hi > _lo)) {
+			AULib.reportError("AUCompactField", "AUCompactField", "hi must be greater than lo, using 0 and 255", "lo="+_lo+" hi="+_hi);
+			_lo = 0;
+			_hi = 255;
+		}
+		storage = _storage;
+		lo = _lo;
+		hi = _hi;
+		switch (storage) {
+			case STORAGE_BYTE:
+				bytes = new byte[w*h];
+				qscale = 255.f/(hi-lo);
+				dscale = (hi-lo)/255.f;
+				byteTable = new float[256];
+				for (int q=0; q<256; q++) byteTable[q] = lo + (q*dscale);
+				break;
+			case STORAGE_FIXED16:
+				shorts = new short[w*h];
+				qscale = 65535.f/(hi-lo);
+				dscale = (hi-lo)/65535.f;
+				break;
+			default:
+			case STORAGE_HALF:
+				shorts = new short[w*h];
+				break;
+		}
+		// start at 0 (or as near as the range allows), which isn't all-zero bits if lo < 0
+		if (encode(0) != 0) flatten(0);
+	}
+
+	// a compact copy of _src
+	public AUCompactField(AUField _src, int _storage) {
+		this(_src, _storage, 0, 255);
+	}
+
+	public AUCompactField(AUField _src, int _storage, float _lo, float _hi) {
+		this(_src.theSketch, _src.w, _src.h, _storage, _lo, _hi);
+		fromField(_src);
+	}
+
+	/**********************
+	 * Conversion
+	 *********************/
+
+	public int bytesPerValue() {
+		return (storage == STORAGE_BYTE) ? 1 : 2;
+	}
+
+	// the stored bits for _v
+	int encode(float _v) {
+		switch (storage) {
+			case STORAGE_BYTE:
+				return Math.max(0, Math.min(255, Math.round((_v-lo)*qscale)));
+			case STORAGE_FIXED16:
+				return Math.max(0, Math.min(65535, Math.round((_v-lo)*qscale)));
+			default:
+			case STORAGE_HALF:
+				return floatToHalf(_v);
+		}
+	}
+
+	// the value at position i of our array
+	float decode(int _i) {
+		switch (storage) {
+			case STORAGE_BYTE:
+				return byteTable[bytes[_i] & 0xFF];
+			case STORAGE_FIXED16:
+				return lo + ((shorts[_i] & 0xFFFF) * dscale);
+			default:
+			case STORAGE_HALF:
+				return HALF_TO_FLOAT[shorts[_i] & 0xFFFF];
+		}
+	}
+
+	public float get(int _x, int _y) {
+		return decode((_y*w)+_x);
+	}
+
+	public void set(int _x, int _y, float _v) {
+		int i = (_y*w)+_x;
+		if (storage == STORAGE_BYTE) {
+			bytes[i] = (byte)encode(_v);
+		} else {
+			shorts[i] = (short)encode(_v);
+		}
+	}
+
+	void getRow(int _y, float[] _dst) {
+		int i = _y*w;
+		switch (storage) {
+			case STORAGE_BYTE:
+				for (int x=0; x<w; x++, i++) _dst[x] = byteTable[bytes[i] & 0xFF];
+				break;
+			case STORAGE_FIXED16:
+				for (int x=0; x<w; x++, i++) _dst[x] = lo + ((shorts[i] & 0xFFFF) * dscale);
+				break;
+			default:
+			case STORAGE_HALF:
+				for (int x=0; x<w; x++, i++) _dst[x] = HALF_TO_FLOAT[shorts[i] & 0xFFFF];
+				break;
+		}
+	}
+
+	void setRow(int _y, float[] _src) {
+		int i = _y*w;
+		switch (storage) {
+			case STORAGE_BYTE:
+				for (int x=0; x<w; x++, i++) bytes[i] = (byte)Math.max(0, Math.min(255, Math.round((_src[x]-lo)*qscale)));
+				break;
+			case STORAGE_FIXED16:
+				for (int x=0; x<w; x++, i++) shorts[i] = (short)Math.max(0, Math.min(65535, Math.round((_src[x]-lo)*qscale)));
+				break;
+			default:
+			case STORAGE_HALF:
+				for (int x=0; x<w; x++, i++) shorts[i] = floatToHalf(_src[x]);
+				break;
+		}
+	}
+
+	/**********************
+	 * Bulk operations
+	 *********************/
+
+	public void flatten(float _v) {
+		// encode once and fill the raw array
+		int q = encode(_v);
+		if (storage == STORAGE_BYTE) {
+			java.util.Arrays.fill(bytes, (byte)q);
+		} else {
+			java.util.Arrays.fill(shorts, (short)q);
+		}
+	}
+
+	public AUCompactField dupe() {
+		AUCompactField f = new AUCompactField(theSketch, w, h, storage, lo, hi);
+		copyStorage(f);
+		return f;
+	}
+
+	public void copy(AURowField _dst) {
+		if (_dst instanceof AUCompactField) {
+			AUCompactField c = (AUCompactField)_dst;
+			if ((c.w == w) && (c.h == h) && (c.storage == storage) && (c.lo == lo) && (c.hi == hi)) {
+				copyStorage(c);
+				return;
+			}
+		}
+		super.copy(_dst);   // different encodings, so go through floats
+	}
+
+	void copyStorage(AUCompactField _dst) {
+		if (storage == STORAGE_BYTE) {
+			System.arraycopy(bytes, 0, _dst.bytes, 0, bytes.length);
+		} else {
+			System.arraycopy(shorts, 0, _dst.shorts, 0, shorts.length);
+		}
+	}
+
+	/**********************
+	 * Half floats
+	 *********************/
+
+	// IEEE 754 binary16, rounding to nearest even. Too-big values become infinity.
+	// (Java 20 has Float.floatToFloat16(), but we still run on Java 8.)
+	static short floatToHalf(float _v) {
+		int bits = Float.floatToRawIntBits(_v);
+		int sign = (bits >>> 16) & 0x8000;
+		int exp = (bits >>> 23) & 0xFF;
+		int mant = bits & 0x7FFFFF;
+		if (exp == 0xFF) {   // infinity or NaN
+			return (short)(sign | 0x7C00 | ((mant != 0) ? (0x200 | (mant >>> 13)) : 0));
+		}
+		int e = exp - 127 + 15;
+		if (e >= 0x1F) return (short)(sign | 0x7C00);
+		int shift = 13;
+		int hbits = e << 10;
+		if (e <= 0) {        // comes out subnormal, or zero
+			if (e < -10) return (short)sign;
+			mant |= 0x800000;
+			shift = 14 - e;
+			hbits = 0;
+		}
+		int half = 1 << (shift-1);
+		int rem = mant & ((1 << shift) - 1);
+		hbits |= mant >>> shift;
+		// a carry out of the mantissa bumps the exponent, which is just what we want
+		if ((rem > half) || ((rem == half) && ((hbits & 1) != 0))) hbits++;
+		return (short)(sign | hbits);
+	}
+
+	static float halfToFloat(short _h) {
+		int sign = (_h & 0x8000) << 16;
+		int exp = (_h >>> 10) & 0x1F;
+		int mant = _h & 0x3FF;
+		if (exp == 0) {      // zero or subnormal
+			float v = mant / 16777216.f;   // mant * 2^-24
+			return (sign != 0) ? -v : v;
+		}
+		if (exp == 0x1F) return Float.intBitsToFloat(sign | 0x7F800000 | (mant << 13));
+		return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+	}
+
+	static float[] buildHalfTable() {
+		float[] t = new float[65536];
+		for (int i=0; i<65536; i++) t[i] = halfToFloat((short)i);
+		return t;
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+/*************************************************
+* EASE TABLES
+* A prebuilt AULib.ease() or AULib.wave(). We evaluate the
+* curve at evenly spaced points once, and after that each
+* lookup is an interpolation between the two nearest ones,
+* with no switch and no exp(), sin() or cos().
+*
+*   AUEaseTable bounce = AUEaseTable.of(AULib.EASE_OUT_ELASTIC, 4096);
+*   float v = bounce.get(t);
+*
+* With 4096 points the answers are within a few millionths
+* of the real thing where the curve is smooth. Where it has
+* a corner or a jump (the anticipate eases, the box and
+* sawtooth waves), it ramps across one step instead, so
+* it can be off by up to a thousandth or so within that step.
+* Like ease(), t below 0 gives 0 and above 1 gives 1. Waves
+* repeat, so a wave table wraps t into [0,1) like wave() does.
+*************************************************/
+
+public class AUEaseTable {
+
+	public static final int DEFAULT_SIZE = 4096;
+
+	final float[] table;     // size+1 entries; the last repeats the end so we never read past it
+	final int size;
+	final float scale;       // size-1, to turn t into a table position
+	final boolean wraps;     // true for waves
+
+	AUEaseTable(float[] _table, boolean _wraps) {
+		size = _table.length - 1;
+		table = _table;
+		scale = size - 1;
+		wraps = _wraps;
+	}
+
+	/**********************
+	 * Building
+	 *********************/
+
+	// _size points from t=0 to t=1 (at least 2)
+	public static AUEaseTable of(int _easeType, int _size) {
+		int size = Math.max(2, _size);
+		float[] t = new float[size+1];
+		for (int i=0; i<size; i++) t[i] = AULib.ease(_easeType, i/(float)(size-1));
+		t[size] = t[size-1];
+		return new AUEaseTable(t, false);
+	}
+
+	public static AUEaseTable of(int _easeType) {
+		return of(_easeType, DEFAULT_SIZE);
+	}
+
+	// a table for wave(_waveType, t, _a)
+	public static AUEaseTable ofWave(int _waveType, float _a, int _size) {
+		int size = Math.max(2, _size);
+		float[] t = new float[size+1];
+		for (int i=0; i<size; i++) t[i] = AULib.wave(_waveType, i/(float)(size-1), _a);
+		t[size] = t[size-1];
+		return new AUEaseTable(t, true);
+	}
+
+	public static AUEaseTable ofWave(int _waveType, float _a) {
+		return ofWave(_waveType, _a, DEFAULT_SIZE);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**********************
+	 * Lookups
+	 *********************/
+
+	public float get(float _t) {
+		if (!wraps) {
+			if (_t < 0) return 0;
+			if (_t > 1) return 1;
+		}
+		float x = (wraps ? _t - (float)Math.floor(_t) : _t) * scale;
+		int i = (int)x;
+		float f = x - i;
+		return table[i] + (f * (table[i+1] - table[i]));
+	}
+
+	// _out[i] = get(_in[i]). _in and _out can be the same array.
+	public void get(float[] _in, float[] _out) {
+		if (_out.length < _in.length) {
+			AULib.reportError("AUEaseTable", "get", "the output array is shorter than the input array", "in="+_in.length+" out="+_out.length);
+			return;
+		}
+		float[] tbl = table;
+		float scl = scale;
+		if (wraps) {
+			for (int k=0; k<_in.length; k++) {
+				float x = (_in[k] - (float)Math.floor(_in[k])) * scl;
+				int i = (int)x;
+				_out[k] = tbl[i] + ((x - i) * (tbl[i+1] - tbl[i]));
+			}
+		} else {
+			for (int k=0; k<_in.length; k++) {
+				float t = _in[k];
+				float x = Math.max(0, Math.min(1, t)) * scl;
+				int i = (int)x;
+				float v = tbl[i] + ((x - i) * (tbl[i+1] - tbl[i]));
+				_out[k] = (t < 0) ? 0 : ((t > 1) ? 1 : v);
+			}
+		}
+	}
+
+	/**********************
+	 * Shared tables
+	 *********************/
+
+	// for AULib.ease() and wave() on arrays, built the first time each one is asked for
+	static final AUEaseTable[] easeTables = new AUEaseTable[AULib.EASE_ANTICIPATE_ELASTIC+1];
+	static final AUEaseTable[] waveTables = new AUEaseTable[AULib.WAVE_SYM_GAIN+1];
+	static final float[] waveA = new float[AULib.WAVE_SYM_GAIN+1];
+
+	static AUEaseTable shared(int _easeType) {
+		if ((_easeType < 0) || (_easeType >= easeTables.length)) _easeType = AULib.EASE_LINEAR;   // ease()'s default
+		synchronized (easeTables) {
+			if (easeTables[_easeType] == null) easeTables[_easeType] = of(_easeType);
+			return easeTables[_easeType];
+		}
+	}
+
+	// We keep the last table for each wave type, since _a usually stays put.
+	static AUEaseTable sharedWave(int _waveType, float _a) {
+		if ((_waveType < 0) || (_waveType >= waveTables.length)) _waveType = AULib.WAVE_TRIANGLE;   // wave()'s default
+		synchronized (waveTables) {
+			if ((waveTables[_waveType] == null) || (waveA[_waveType] != _a)) {
+				waveTables[_waveType] = ofWave(_waveType, _a);
+				waveA[_waveType] = _a;
+			}
+			return waveTables[_waveType];
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+
+package AULib;
+
+
+import processing.core.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*************************************************
+* FFMPEG SINK
+* Pipes AUCamera's frames as raw RGB into an ffmpeg
+* process, which encodes the video as we go. ffmpeg has
+* to be installed; we run "ffmpeg" from the PATH unless
+* you give the full path to it.
+*
+*   camera.setFrameSink(new AUFFmpegSink(this, "movie.mp4", 30));
+*
+* The output arguments go just before the output file,
+* so you can pick the codec and quality:
+*
+*   new AUFFmpegSink(this, "ffmpeg", "movie.mp4", 30,
+*                    "-c:v", "libx264", "-crf", "18", "-pix_fmt", "yuv420p");
+*
+* ffmpeg prints its errors to the sketch's console.
+*************************************************/
+
+public class AUFFmpegSink implements AUFrameSink {
+
+	// theSketch is a reference to the parent sketch
+	PApplet theSketch;
+
+	String ffmpeg, path;
+	int fps;
+	String[] outputArgs;
+	int w, h;
+	Process process = null;
+	OutputStream pipe = null;
+	byte[] frame = null;
+	boolean failed = false;    // after an error we quietly skip the rest
+
+	public AUFFmpegSink(PApplet _theSketch, String _path, int _fps) {
+		this(_theSketch, "ffmpeg", _path, _fps);
+	}
+
+	public AUFFmpegSink(PApplet _theSketch, String _ffmpeg, String _path, int _fps, String... _outputArgs) {
+		if (_theSketch == null) {
+			AULib.reportError("AUFFmpegSink", "AUFFmpegSink", "theSketch is null", "");
+		}
+		theSketch = _theSketch;
+		ffmpeg = _ffmpeg;
+		path = _path;
+		fps = Math.max(1, _fps);
+		outputArgs = (_outputArgs != null) ? _outputArgs : new String[0];
+	}
+
+	public void begin(int _w, int _h) {
+		w = _w;
+		h = _h;
+		failed = false;
+		frame = new byte[3*w*h];
+		ArrayList<String> cmd = new ArrayList<String>();
+		cmd.addAll(Arrays.asList(ffmpeg, "-y", "-loglevel", "error",
+		                         "-f", "rawvideo", "-pix_fmt", "rgb24", "-s", w+"x"+h, "-r", ""+fps, "-i", "-"));
+		cmd.addAll(Arrays.asList(outputArgs));
+		cmd.add(theSketch.savePath(path));
+		try {
+			ProcessBuilder pb = new ProcessBuilder(cmd);
+			pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+			pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+			process = pb.start();
+			pipe = process.getOutputStream();
+		} catch (IOException e) {
+			fail("begin", "could not start ffmpeg", ffmpeg+": "+e);
+		}
+	}
+
+	public void writeFrame(AUMultiField _rgb, int _frameNumber) {
+		if (failed || (pipe == null)) return;
+		if ((_rgb.w != w) || (_rgb.h != h) || (_rgb.fields.length < 3)) {
+			AULib.reportError("AUFFmpegSink", "writeFrame", "the frame is not the size given to begin()", "");
+			return;
+		}
+		final AUField r = _rgb.fields[0];
+		final AUField g = _rgb.fields[1];
+		final AUField b = _rgb.fields[2];
+		final byte[] dst = frame;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				AUPixels.rgbBytesRow(r, g, b, y, dst, 3*y*w, w);
+			}
+		});
+		try {
+			pipe.write(frame);
+		} catch (IOException e) {
+			fail("writeFrame", "ffmpeg stopped taking frames", e.toString());
+		}
+	}
+
+	// close the pipe, so ffmpeg finishes the file, and wait for it
+	public void end() {
+		if (process == null) return;
+		try {
+			if (pipe != null) pipe.close();
+		} catch (IOException e) {
+			// ffmpeg has already gone; we'll hear about it below
+		}
+		try {
+			int status = process.waitFor();
+			if ((status != 0) && !failed) {
+				AULib.reportError("AUFFmpegSink", "end", "ffmpeg did not finish cleanly", "exit status "+status);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			AULib.reportError("AUFFmpegSink", "end", "interrupted while waiting for ffmpeg to finish", "");
+		}
+		process = null;
+		pipe = null;
+		frame = null;
+	}
+
+	void fail(String _func, String _msg, String _data) {
+		AULib.reportError("AUFFmpegSink", _func, _msg+", skipping the rest of the frames", _data);
+		failed = true;
+		if (process != null) process.destroy();
+		end();
+	}
+}
@@ -55,9 +55,34 @@ public class AUField {
 	public static final int FIELD_AVG_RGB = 3;  //   use the average of the three components
 	public static final int FIELD_LUM = 4;      //   use the luminance (.3*red) + (.59*green) + (.11*blue)
 	
-	public float[][] z;
+	// The values are stored row by row in one flat array. The value at (x,y)
+	// is data[offset+(y*stride)+(x*step)]. A field we allocate ourselves has
+	// offset 0, stride w and step 1. A field that's one channel of an interleaved
+	// AUMultiField shares that array, and has a bigger step.
+	// Use get() and set() if you don't want to think about it.
+	public float[] data;
+	public int offset, stride, step;
 	public int w, h;
 	
+	// The dirty rectangle [dirtyX0, dirtyX1) x [dirtyY0, dirtyY1) holds everything
+	// that's changed since we last wrote the field out. It's empty when dirtyX0 >= dirtyX1.
+	// set() and the bulk operations keep it up to date. If you write into data[]
+	// yourself, call markDirty() or markAllDirty() so we know.
+	int dirtyX0, dirtyY0, dirtyX1, dirtyY1;
+	
+	// In incremental mode, an opaque toPixels() to the same place as last time only
+	// writes the dirty rectangle, and skips loadPixels(). See setIncremental().
+	boolean incremental = false;
+	Object lastTarget = null;     // the PApplet or PGraphics we last wrote to in full
+	int lastDx, lastDy;
+	
+	// a view made by view() shares its parent's values, and passes its changes up
+	AUField parent = null;
+	int parentX, parentY;         // where our (0,0) is in the parent
+	
+	// built the first time someone samples with a level of detail; see sample()
+	volatile AUMipMap mips = null;
+	
 	public AUField(PApplet _theSketch, int _wid, int _hgt) {
 		if (_theSketch == null) {
 			AULib.reportError("AUColorField", "AUColorField", "theSketch is null", "");
@@ -65,53 +90,314 @@ public class AUField {
 		theSketch = _theSketch;
 		w = Math.max(1, _wid);
 		h = Math.max(1, _hgt);
-		z = new float[_hgt][_wid];
-		flatten(0);
+		offset = 0;
+		stride = w;
+		step = 1;
+		data = new float[w*h];     // Java fills it with zeros
+		markAllDirty();
 	}
 	
-	public void flatten(float _v) {
+	// a field that uses values that live in someone else's array
+	AUField(PApplet _theSketch, float[] _data, int _offset, int _stride, int _step, int _wid, int _hgt) {
+		theSketch = _theSketch;
+		data = _data;
+		offset = _offset;
+		stride = _stride;
+		step = _step;
+		w = _wid;
+		h = _hgt;
+		markAllDirty();
+	}
+	
+	/**********************
+	 * Index helpers
+	 *********************/
+	
+	public int index(int _x, int _y) {
+		return offset+(_y*stride)+(_x*step);
+	}
+	
+	public float get(int _x, int _y) {
+		return data[offset+(_y*stride)+(_x*step)];
+	}
+	
+	public void set(int _x, int _y, float _v) {
+		data[offset+(_y*stride)+(_x*step)] = _v;
+		if (_x < dirtyX0) dirtyX0 = _x;
+		if (_x >= dirtyX1) dirtyX1 = _x+1;
+		if (_y < dirtyY0) dirtyY0 = _y;
+		if (_y >= dirtyY1) dirtyY1 = _y+1;
+		if (mips != null) mips.markDirty(_x, _y, _x+1, _y+1);
+		if (parent != null) parent.markDirty(parentX+_x, parentY+_y, 1, 1);
+	}
+	
+	// copy row _y into _dst[0..w), and back again
+	void getRow(int _y, float[] _dst) {
+		int i = index(0, _y);
+		if (step == 1) {
+			System.arraycopy(data, i, _dst, 0, w);
+			return;
+		}
+		for (int x=0; x<w; x++, i+=step) _dst[x] = data[i];
+	}
+	
+	void setRow(int _y, float[] _src) {
+		markDirty(0, _y, w, 1);
+		int i = index(0, _y);
+		if (step == 1) {
+			System.arraycopy(_src, 0, data, i, w);
+			return;
+		}
+		for (int x=0; x<w; x++, i+=step) data[i] = _src[x];
+	}
+	
+	// For code written against the old public z[y][x] array, which is gone: the
+	// values now live in data[]. getZ() is a snapshot, a fresh copy each time, so
+	// writing into it does nothing to the field. Where a sketch used to write
+	//   f.z[y][x] = v;
+	// it should now call f.set(x, y, v), or change the copy and hand it back with setZ().
+	public float[][] getZ() {
+		float[][] z = new float[h][w];
 		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				z[y][x] = _v;
-			}
+			getRow(y, z[y]);
 		}
+		return z;
 	}
 	
-	public void setRange(float _zmin, float _zmax) {
-		float fmin = z[0][0];
-		float fmax = z[0][0];
+	public void setZ(float[][] _z) {
+		if ((_z == null) || (_z.length < h)) {
+			AULib.reportError("AUField", "setZ", "the array is missing or has fewer than h rows", "h="+h);
+			return;
+		}
 		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				float zv = z[y][x];
-				fmin = Math.min(fmin, zv);
-				fmax = Math.max(fmax, zv);
+			if ((_z[y] == null) || (_z[y].length < w)) {
+				AULib.reportError("AUField", "setZ", "row "+y+" is missing or has fewer than w entries", "w="+w);
+				return;
 			}
+			setRow(y, _z[y]);
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				z[y][x] = AUMisc.jmap(z[y][x], fmin, fmax, _zmin, _zmax);
+	}
+	
+	/**********************
+	 * Views
+	 *********************/
+	
+	// A _w by _h window into this field, with its (0,0) at our (_x,_y). Nothing is
+	// copied: the view uses our values, so a change to either one shows up in both.
+	// A view is an AUField, so everything works on it, including add(), mul() and
+	// copy() with another field of the view's size, and toPixels(). Changes made
+	// through the view are added to our dirty rectangle.
+	public AUField view(int _x, int _y, int _w, int _h) {
+		int x0 = Math.max(0, Math.min(w-1, _x));
+		int y0 = Math.max(0, Math.min(h-1, _y));
+		int x1 = Math.max(x0+1, Math.min(w, _x+_w));
+		int y1 = Math.max(y0+1, Math.min(h, _y+_h));
+		if ((x0 != _x) || (y0 != _y) || (x1 != _x+_w) || (y1 != _y+_h)) {
+			AULib.reportError("AUField", "view", "the view doesn't fit inside the field, so it was trimmed", 
+			                  "x="+_x+" y="+_y+" w="+_w+" h="+_h+" field w="+w+" h="+h);
+		}
+		AUField v = new AUField(theSketch, data, index(x0, y0), stride, step, x1-x0, y1-y0);
+		v.parent = this;
+		v.parentX = x0;
+		v.parentY = y0;
+		return v;
+	}
+	
+	public boolean isView() {
+		return parent != null;
+	}
+	
+	/**********************
+	 * Dirty rectangle
+	 *********************/
+	
+	// add the rectangle at (_x, _y) of size _w by _h to the dirty rectangle
+	public void markDirty(int _x, int _y, int _w, int _h) {
+		int x0 = Math.max(0, _x);
+		int y0 = Math.max(0, _y);
+		int x1 = Math.min(w, _x+_w);
+		int y1 = Math.min(h, _y+_h);
+		if ((x0 >= x1) || (y0 >= y1)) return;
+		dirtyX0 = Math.min(dirtyX0, x0);
+		dirtyY0 = Math.min(dirtyY0, y0);
+		dirtyX1 = Math.max(dirtyX1, x1);
+		dirtyY1 = Math.max(dirtyY1, y1);
+		if (mips != null) mips.markDirty(x0, y0, x1, y1);
+		if (parent != null) parent.markDirty(parentX+x0, parentY+y0, x1-x0, y1-y0);
+	}
+	
+	public void markAllDirty() {
+		dirtyX0 = 0;
+		dirtyY0 = 0;
+		dirtyX1 = w;
+		dirtyY1 = h;
+		if (mips != null) mips.markDirty(0, 0, w, h);
+		if (parent != null) parent.markDirty(parentX, parentY, w, h);
+	}
+	
+	public void clearDirty() {
+		dirtyX0 = w;
+		dirtyY0 = h;
+		dirtyX1 = 0;
+		dirtyY1 = 0;
+	}
+	
+	public boolean isDirty() {
+		return (dirtyX0 < dirtyX1) && (dirtyY0 < dirtyY1);
+	}
+	
+	// returns { x, y, w, h } of the dirty rectangle, or null if nothing has changed
+	public int[] getDirtyRect() {
+		if (!isDirty()) return null;
+		return new int[] { dirtyX0, dirtyY0, dirtyX1-dirtyX0, dirtyY1-dirtyY0 };
+	}
+	
+	// For a field that's drawn to the same spot every frame, and nothing else draws
+	// over it there. Then toPixels() without a mask only writes what changed since
+	// last time, and does nothing at all if nothing did. Anything else (a new spot,
+	// a new target, or a mask) writes everything, as usual.
+	public void setIncremental(boolean _incremental) {
+		incremental = _incremental;
+		lastTarget = null;
+	}
+	
+	public boolean isIncremental() {
+		return incremental;
+	}
+	
+	/**********************
+	 * Distances
+	 *********************/
+	
+	// Set each point (x, y) to AULib.dist(_distanceType, _ax, _ay, _bx, _by, x, y).
+	// Like dist(), any other type (including DIST_NGON and DIST_STAR) is radial.
+	public void fillDistance(int _distanceType, float _ax, float _ay, float _bx, float _by) {
+		if (!AUDistance.isDistType(_distanceType)) _distanceType = AULib.DIST_RADIAL;
+		fillDistance(_distanceType, 0, _ax, _ay, _bx, _by);
+	}
+	
+	// The same, using AULib.distN() with _n for DIST_NGON and DIST_STAR, and for any
+	// type dist() doesn't know (which distN() treats as DIST_NGON). The dist() types
+	// ignore _n. This is much faster than calling those yourself for each point; see AUDistance.
+	public void fillDistance(int _distanceType, int _n, float _ax, float _ay, float _bx, float _by) {
+		final AUDistance dist = new AUDistance(_distanceType, _n, _ax, _ay, _bx, _by);
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int i = index(0, y);
+				for (int x=0; x<w; x++, i+=step) data[i] = dist.at(x, y);
+			}
+		});
+		markAllDirty();
+	}
+	
+	/**********************
+	 * Sampling
+	 *********************/
+	
+	// The value anywhere in the field, not just at whole-number points. Point (x, y)
+	// is exactly at (x, y), and outside the field the edge values repeat.
+	public float sample(float _x, float _y) {
+		return AUMipMap.bilinear(this, _x, _y);
+	}
+	
+	// smoother than sample(), but a little slower, and can overshoot near sharp edges
+	public float sampleBicubic(float _x, float _y) {
+		return AUMipMap.bicubic(this, _x, _y);
+	}
+	
+	// Sample a blurred, shrunken copy of the field: at level of detail 1, each
+	// point is the average of a 2x2 block, at 2 a 4x4 block, and so on, blending
+	// between levels. Use this when you're drawing the field smaller than it is,
+	// with _lod about log2 of the shrink factor. (_x, _y) is still in this field's
+	// coordinates. The levels are built the first time, and after that only the
+	// parts under the dirty rectangle are rebuilt when the field changes. If you
+	// write data[] yourself, or through a field that shares our values without being
+	// our view (like our parent), call markDirty().
+	public float sample(float _x, float _y, float _lod) {
+		return mipMap().sample(_x, _y, _lod);
+	}
+	
+	// how many levels of detail there are, counting the field itself as level 0
+	public int getMipLevels() {
+		return mipMap().levels.length;
+	}
+	
+	AUMipMap mipMap() {
+		if (mips == null) {
+			synchronized (this) {
+				if (mips == null) mips = new AUMipMap(this);
 			}
 		}
+		if (mips.pending) mips.update();
+		return mips;
+	}
+	
+	/**********************
+	 * Bulk operations
+	 *********************/
+	
+	public void flatten(float _v) {
+		markAllDirty();
+		final float[] d = data;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int i = index(0, y);
+				if (step == 1) {
+					java.util.Arrays.fill(d, i, i+w, _v);
+				} else {
+					for (int x=0; x<w; x++, i+=step) d[i] = _v;
+				}
+			}
+		});
+	}
+	
+	// returns { min, max } over the whole field
+	public float[] getRange() {
+		return AUReduce.minMax(new AUField[] { this }, 1)[0];
+	}
+	
+	public void setRange(float _zmin, float _zmax) {
+		float[] mm = getRange();
+		setRange(_zmin, _zmax, mm[0], mm[1]);
+	}
+	
+	// If you already know the field's min and max (say, you just built it), hand them
+	// over and we'll skip the scan. Values outside [_fromMin, _fromMax] land outside [_zmin, _zmax].
+	public void setRange(float _zmin, float _zmax, float _fromMin, float _fromMax) {
+		float[] from = { _fromMin };
+		float[] scl = { AUReduce.scale(_fromMin, _fromMax, _zmin, _zmax) };
+		float[] to = { _zmin };
+		AUReduce.remap(new AUField[] { this }, 1, from, scl, to);
 	}
 	
 	public void normalize() {
 		setRange(0, 1);
 	}
 	
+	public void normalize(float _fromMin, float _fromMax) {
+		setRange(0, 1, _fromMin, _fromMax);
+	}
+	
 	public void add(float _a) {
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				z[y][x] += _a;
+		markAllDirty();
+		final float[] d = data;
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				k.add(d, index(0, y), step, w, _a);
 			}
-		}
+		});
 	}
 	
 	public void mul(float _a) {
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				z[y][x] *= _a;
+		markAllDirty();
+		final float[] d = data;
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				k.mul(d, index(0, y), step, w, _a);
 			}
-		}
+		});
 	}
 	
 	public void add(AUField _f) {
@@ -119,11 +405,15 @@ public class AUField {
 			AULib.reportError("AUField", "add", "the two fields do not have the same size", "");
 			return;
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				z[y][x] += _f.z[y][x];
+		markAllDirty();
+		final float[] d = data;
+		final float[] src = _f.data;
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				k.add(d, index(0, y), step, src, _f.index(0, y), _f.step, w);
 			}
-		}
+		});
 	}
 	
 	public void mul(AUField _f) {
@@ -131,21 +421,55 @@ public class AUField {
 			AULib.reportError("AUField", "mul", "the two fields do not have the same size", "");
 			return;
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				z[y][x] *= _f.z[y][x];
+		markAllDirty();
+		final float[] d = data;
+		final float[] src = _f.data;
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				k.mul(d, index(0, y), step, src, _f.index(0, y), _f.step, w);
 			}
-		}
+		});
+	}
+	
+	// Record a chain of operations to run together later, e.g.
+	// f.lazy().mul(a).add(g).normalize().eval(). See AUFieldExpr.
+	public AUFieldExpr lazy() {
+		return new AUFieldExpr(this);
 	}
 	
 	public AUField dupe() {
 		AUField f = new AUField(theSketch, w, h);
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				f.z[y][x] = z[y][x];
+		copyRows(f);
+		return f;
+	}
+	
+	// Like dupe(), but into a field you already have. If _dst isn't our size, it's
+	// resized to match, reusing its array when that's big enough. So calling this
+	// every frame with the same _dst allocates nothing after the first time.
+	public AUField dupeInto(AUField _dst) {
+		if ((_dst.w != w) || (_dst.h != h)) {
+			if ((_dst.parent != null) || (_dst.offset != 0) || (_dst.step != 1)) {
+				AULib.reportError("AUField", "dupeInto", "can't resize a view or a channel of an interleaved field", "");
+				return _dst;
 			}
+			_dst.reshape(w, h);
 		}
-		return f;
+		copyRows(_dst);
+		return _dst;
+	}
+	
+	// make this field _w by _h, keeping the array if it's long enough (the values are left over)
+	void reshape(int _w, int _h) {
+		w = _w;
+		h = _h;
+		offset = 0;
+		stride = w;
+		step = 1;
+		if (data.length < w*h) data = new float[w*h];
+		parent = null;
+		lastTarget = null;
+		markAllDirty();
 	}
 	
 	public void copy(AUField _dst) {
@@ -153,47 +477,101 @@ public class AUField {
 			AULib.reportError("AUField", "copy", "the two fields do not have the same size", "");
 			return;
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				_dst.z[y][x] = z[y][x];
+		copyRows(_dst);
+	}
+	
+	void copyRows(AUField _dst) {
+		_dst.markAllDirty();
+		final float[] src = data;
+		final float[] dst = _dst.data;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int i = index(0, y);
+				int j = _dst.index(0, y);
+				if ((step == 1) && (_dst.step == 1)) {
+					System.arraycopy(src, i, dst, j, w);
+				} else {
+					for (int x=0; x<w; x++, i+=step, j+=_dst.step) dst[j] = src[i];
+				}
 			}
+		});
+	}
+	
+	/**********************
+	 * Blur
+	 *********************/
+	
+	// Each value becomes the average of the (2r+1) by (2r+1) square around it.
+	// The cost doesn't depend on the radius. See AUBlur.
+	public void boxBlur(int _radius) {
+		boxBlur(_radius, _radius);
+	}
+	
+	public void boxBlur(int _radiusX, int _radiusY) {
+		if ((_radiusX < 0) || (_radiusY < 0)) {
+			AULib.reportError("AUField", "boxBlur", "the radius can't be negative", "radiusX="+_radiusX+" radiusY="+_radiusY);
+			return;
 		}
+		AUBlur.box(this, radii(_radiusX), radii(_radiusY));
+	}
+	
+	// very close to a true Gaussian blur, made from three box blurs
+	public void gaussianBlur(float _sigma) {
+		gaussianBlur(_sigma, _sigma);
+	}
+	
+	public void gaussianBlur(float _sigmaX, float _sigmaY) {
+		if ((_sigmaX < 0) || (_sigmaY < 0)) {
+			AULib.reportError("AUField", "gaussianBlur", "sigma can't be negative", "sigmaX="+_sigmaX+" sigmaY="+_sigmaY);
+			return;
+		}
+		int[] rx = (_sigmaX > 0) ? AUBlur.gaussRadii(_sigmaX, 3) : new int[0];
+		int[] ry = (_sigmaY > 0) ? AUBlur.gaussRadii(_sigmaY, 3) : new int[0];
+		AUBlur.box(this, rx, ry);
+	}
+	
+	// Run _kernel across the rows and then down the columns. The kernel needs
+	// an odd number of entries and is centered on the middle one.
+	public void convolve(float[] _kernel) {
+		convolve(_kernel, _kernel);
+	}
+	
+	public void convolve(float[] _kernelX, float[] _kernelY) {
+		if ((_kernelX == null) || (_kernelY == null) || (_kernelX.length % 2 == 0) || (_kernelY.length % 2 == 0)) {
+			AULib.reportError("AUField", "convolve", "each kernel needs an odd number of entries", "");
+			return;
+		}
+		AUBlur.convolve(this, _kernelX, _kernelY);
+	}
+	
+	static int[] radii(int _r) {
+		return (_r > 0) ? new int[] { _r } : new int[0];
 	}
 	
 	void loadFromPixels(int _valueType, PGraphics _pg) {
 		int wid = 0;
 		int hgt = 0;
+		int[] thesePixels;
 		if (_pg != null) {
 			_pg.loadPixels();
 			wid = _pg.width;
 			hgt = _pg.height;
+			thesePixels = _pg.pixels;
 		} else {
 			theSketch.loadPixels();
 			wid = theSketch.width;
 			hgt = theSketch.height;
+			thesePixels = theSketch.pixels;
 		}
-		for (int y=0; y<h; y++) {
-			if (y >= hgt) continue;
-			for (int x=0; x<w; x++) {
-				if (x >= wid) continue;
-				int c = 0;
-				if (_pg != null) {
-					c = _pg.pixels[(y*wid)+x];
-				} else {
-					c = theSketch.pixels[(y*wid)+x];
-				}
-				float v = 0;
-				switch (_valueType) {
-					case FIELD_RED: v = (c>>16) & 0xFF; break;
-					case FIELD_GREEN: v = (c>>8) & 0xFF; break;
-					case FIELD_BLUE: v = c & 0xFF; break;
-					default:
-					case FIELD_AVG_RGB: v = (((c>>16) & 0xFF)+((c>>8) & 0xFF)+(c & 0xFF))/3.f; break;
-					case FIELD_LUM: v = (.3f * ((c>>16) & 0xFF)) + (.59f * ((c>>8) & 0xFF)) + (.11f * (c & 0xFF)); break;
-				}
-				z[y][x] = v; 
+		markAllDirty();
+		final float[] d = data;
+		final int pixWid = wid;
+		final int rowLen = Math.min(w, wid);
+		AUParallel.forRows(Math.min(h, hgt), rowLen, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				AUPixels.toRow(thesePixels, y*pixWid, d, index(0, y), step, rowLen, _valueType);
 			}
-		}
+		});
 	}
 	
 	public void fromPixels(int _valueType) {
@@ -205,76 +583,50 @@ public class AUField {
 	}
 	
 	void writeToPixels(int _dx, int _dy, AUField _mask, int _mx, int _my, PGraphics _pg) {
-		int wid = 0;
-		int hgt = 0;
-		int[] thesePixels;
-		if (_pg != null) {
-			wid = _pg.width;
-			hgt = _pg.height;
-			_pg.loadPixels();
-			thesePixels = _pg.pixels;
-		} else {
-			wid = theSketch.width;
-			hgt = theSketch.height;
-			theSketch.loadPixels();
-			thesePixels = theSketch.pixels;
+		Object target = (_pg != null) ? _pg : theSketch;
+		int[] thesePixels = (_pg != null) ? _pg.pixels : theSketch.pixels;
+		// in incremental mode, the pixels already hold everything outside the dirty rectangle
+		boolean onlyDirty = incremental && (_mask == null) && (target == lastTarget) && 
+		                    (_dx == lastDx) && (_dy == lastDy) && (thesePixels != null);
+		if (onlyDirty && !isDirty()) return;
+		if (!onlyDirty) {
+			if (_pg != null) {
+				_pg.loadPixels();
+				thesePixels = _pg.pixels;
+			} else {
+				theSketch.loadPixels();
+				thesePixels = theSketch.pixels;
+			}
 		}
-		for (int y=0; y<h; y++) {
-			int py = y+_dy;
-			if ((py < 0) || (py >= hgt)) continue;
-			for (int x=0; x<w; x++) {
-				int px = x+_dx;
-				if ((px < 0) || (px >= wid)) continue;
-				int newColor = 0;
-				int index = (py*wid)+px;
-				int fieldGray = Math.round(z[py][px]);	
-				if (_mask == null) {
-					newColor = (0xFF << 24) | ((fieldGray & 0xFF) << 16) | ((fieldGray & 0xFF) << 8) | (fieldGray & 0xFF);
-				} else {
-					int maskX = x + _mx;
-					int maskY = y + _my;
-					float fieldAlpha = 1.f;
-					if ((maskX >= 0) && (maskX < _mask.w) && (maskY >= 0) && (maskY < _mask.h)) {
-						fieldAlpha = _mask.z[maskY][maskX] / 255.f;
-					}
-					int pixelColor = thesePixels[index];
-					float pixelRed = (pixelColor >> 16) & 0xFF;
-					float pixelGreen = (pixelColor >> 8) & 0xFF;
-					float pixelBlue = pixelColor & 0xFF;
-					int pa = (pixelColor >> 24) & 0xFF;
-					float pixelAlpha = pa / 255.f;
-					
-					float blendF = fieldAlpha;
-					float blendP = 1.f;
-					if (_pg != null) {   // the screen is always opaque, but PGraphics might not be
-						blendF = fieldAlpha;
-						blendP = pixelAlpha; // * (1.f - fieldAlpha); <- Alvy's scale factor not needed any more
-					}
-					
-					// use my blending algorithm to support when blendP != 1
-					float blendAlpha = blendP + ((1.f - blendP) * blendF);
-					if (blendAlpha != 0) {
-						float kappa = 1.f - blendF;
-						float k2 = 1.f - kappa;
-						float blendRed   = ((fieldGray * k2) + (pixelRed * kappa))/blendAlpha;
-						float blendGreen = ((fieldGray * k2) + (pixelGreen * kappa))/blendAlpha;
-						float blendBlue  = ((fieldGray * k2) + (pixelBlue * kappa))/blendAlpha;
-						int ired = Math.round(blendRed);
-						int igrn = Math.round(blendGreen);
-						int iblu = Math.round(blendBlue);
-						int ialf = Math.round(255.f * blendAlpha); 
-						
-						newColor = ((ialf & 0xFF) << 24) | ((ired & 0xFF) << 16) | ((igrn & 0xFF) << 8) | (iblu & 0xFF);
-					}
-				}
-				thesePixels[index] = newColor;
+		final int[] pix = thesePixels;
+		final float[] d = data;
+		final int wid = (_pg != null) ? _pg.width : theSketch.width;
+		final int hgt = (_pg != null) ? _pg.height : theSketch.height;
+		final int fx0 = onlyDirty ? dirtyX0 : 0;
+		final int fx1 = onlyDirty ? dirtyX1 : w;
+		final int fy0 = onlyDirty ? dirtyY0 : 0;
+		final int fy1 = onlyDirty ? dirtyY1 : h;
+		AUParallel.forRows(fy1-fy0, fx1-fx0, (b0, b1) -> {
+			for (int y=fy0+b0; y<fy0+b1; y++) {
+				int py = y+_dy;
+				if ((py < 0) || (py >= hgt)) continue;
+				// the part of the row that lands on the pixels
+				int x0 = Math.max(fx0, -_dx);
+				int x1 = Math.min(fx1, wid-_dx);
+				if (x0 >= x1) continue;
+				AUPixels.grayRow(d, index(x0, y), step, _mask, x0+_mx, y+_my, pix, (py*wid)+x0+_dx, x1-x0, _pg != null);
 			}
-		}				
+		});
 		if (_pg != null) {
 			_pg.updatePixels();
 		} else {
 			theSketch.updatePixels();
 		}
+		// a masked write blends into the pixels, so they no longer match the field
+		lastTarget = (_mask == null) ? target : null;
+		lastDx = _dx;
+		lastDy = _dy;
+		clearDirty();
 	}
 	
 	public void toPixels(float _dx, float _dy) {
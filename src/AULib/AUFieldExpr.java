@@ -0,0 +1,195 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+import java.util.ArrayList;
+
+/*************************************************
+* FIELD EXPRESSIONS
+* A chain of field operations that waits until eval().
+*
+*   f.lazy().mul(a).add(g).mul(mask).normalize().eval();
+*
+* Calling f.mul(a); f.add(g); ... runs over the whole field
+* once per call. Here we run through the field a tile at a
+* time instead, doing every operation on that tile while
+* it's still in the cache. setRange() and normalize() need
+* the min and max of everything before them, so we find
+* those during the same pass, and fold the remap into the
+* start of the next pass (or one last pass at the end).
+*
+* The expression remembers its operations, so you can
+* build it once and eval() it every frame.
+*************************************************/
+
+public class AUFieldExpr {
+
+	static final int OP_ADD = 0;
+	static final int OP_MUL = 1;
+	static final int OP_ADD_FIELD = 2;
+	static final int OP_MUL_FIELD = 3;
+	static final int OP_RANGE = 4;
+	static final int OP_AFFINE = 5;    // made internally from a resolved OP_RANGE: ((v-a)*b) + c
+
+	static final int TILE_WIDTH = 4096;  // 16K of floats, comfortably inside L1
+
+	static class Op {
+		int type;
+		float a, b, c;
+		AUField f;
+
+		Op(int _type, float _a, float _b, AUField _f) {
+			type = _type;
+			a = _a;
+			b = _b;
+			f = _f;
+		}
+
+		Op(int _type, float _a, float _b, float _c) {
+			this(_type, _a, _b, null);
+			c = _c;
+		}
+	}
+
+	AUField target;
+	ArrayList<Op> ops;
+
+	public AUFieldExpr(AUField _target) {
+		if (_target == null) {
+			AULib.reportError("AUFieldExpr", "AUFieldExpr", "the target field is null", "");
+		}
+		target = _target;
+		ops = new ArrayList<Op>();
+	}
+
+	public AUFieldExpr add(float _a) {
+		ops.add(new Op(OP_ADD, _a, 0, null));
+		return this;
+	}
+
+	public AUFieldExpr mul(float _a) {
+		ops.add(new Op(OP_MUL, _a, 0, null));
+		return this;
+	}
+
+	public AUFieldExpr add(AUField _f) {
+		if (sameSize(_f, "add")) ops.add(new Op(OP_ADD_FIELD, 0, 0, _f));
+		return this;
+	}
+
+	public AUFieldExpr mul(AUField _f) {
+		if (sameSize(_f, "mul")) ops.add(new Op(OP_MUL_FIELD, 0, 0, _f));
+		return this;
+	}
+
+	public AUFieldExpr setRange(float _zmin, float _zmax) {
+		ops.add(new Op(OP_RANGE, _zmin, _zmax, null));
+		return this;
+	}
+
+	public AUFieldExpr normalize() {
+		return setRange(0, 1);
+	}
+
+	public void clear() {
+		ops.clear();
+	}
+
+	boolean sameSize(AUField _f, String _func) {
+		if ((_f == null) || (_f.w != target.w) || (_f.h != target.h)) {
+			AULib.reportError("AUFieldExpr", _func, "the two fields do not have the same size", "");
+			return false;
+		}
+		return true;
+	}
+
+	// Run the operations on the target field and return it.
+	public AUField eval() {
+		target.markAllDirty();
+		ArrayList<Op> pass = new ArrayList<Op>();
+		for (int i=0; i<ops.size(); i++) {
+			Op op = ops.get(i);
+			if (op.type != OP_RANGE) {
+				pass.add(op);
+				continue;
+			}
+			float[] mm = runPass(pass, true);
+			pass.clear();
+			pass.add(new Op(OP_AFFINE, mm[0], AUReduce.scale(mm[0], mm[1], op.a, op.b), op.a));
+		}
+		if (pass.size() > 0) runPass(pass, false);
+		return target;
+	}
+
+	// One trip through the field, applying _pass to each tile. If _findRange, also
+	// returns the { min, max } of the result.
+	float[] runPass(ArrayList<Op> _pass, final boolean _findRange) {
+		final Op[] passOps = _pass.toArray(new Op[_pass.size()]);
+		final AUField t = target;
+		final int w = t.w;
+		final int h = t.h;
+		final float[] rowMM = _findRange ? new float[h*2] : null;
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w * Math.max(1, passOps.length), (y0, y1) -> {
+			float[] tileMM = new float[2];
+			for (int y=y0; y<y1; y++) {
+				for (int x0=0; x0<w; x0+=TILE_WIDTH) {
+					int n = Math.min(TILE_WIDTH, w-x0);
+					int i = t.index(x0, y);
+					for (int o=0; o<passOps.length; o++) {
+						Op op = passOps[o];
+						switch (op.type) {
+							case OP_ADD: k.add(t.data, i, t.step, n, op.a); break;
+							case OP_MUL: k.mul(t.data, i, t.step, n, op.a); break;
+							case OP_ADD_FIELD: k.add(t.data, i, t.step, op.f.data, op.f.index(x0, y), op.f.step, n); break;
+							case OP_MUL_FIELD: k.mul(t.data, i, t.step, op.f.data, op.f.index(x0, y), op.f.step, n); break;
+							case OP_AFFINE: k.affine(t.data, i, t.step, n, op.a, op.b, op.c); break;
+						}
+					}
+					if (rowMM != null) {
+						k.minMax(t.data, i, t.step, n, tileMM, 0);
+						if (x0 == 0) {
+							rowMM[y*2] = tileMM[0];
+							rowMM[(y*2)+1] = tileMM[1];
+						} else {
+							rowMM[y*2] = Math.min(rowMM[y*2], tileMM[0]);
+							rowMM[(y*2)+1] = Math.max(rowMM[(y*2)+1], tileMM[1]);
+						}
+					}
+				}
+			}
+		});
+		if (rowMM == null) return null;
+		float[] mm = { rowMM[0], rowMM[1] };
+		for (int y=1; y<h; y++) {
+			mm[0] = Math.min(mm[0], rowMM[y*2]);
+			mm[1] = Math.max(mm[1], rowMM[(y*2)+1]);
+		}
+		return mm;
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+
+import processing.core.*;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+/*************************************************
+* FIELD POOL
+* Hands out fields and takes them back, so a sketch that
+* needs scratch fields every frame isn't allocating new
+* ones (and making the garbage collector pause) each time.
+*
+*   AUFieldPool pool = new AUFieldPool(this);
+*   ...
+*   AUField tmp = pool.dupe(f);    // in draw()
+*   ...
+*   pool.release(tmp);             // don't use tmp after this
+*
+* Fields are sorted into size classes, each a quarter of a
+* power of two apart, so a field that's been given back can
+* be reused for any size up to 25% smaller. Its array may be
+* longer than w*h; only the first w*h values are used.
+*************************************************/
+
+public class AUFieldPool {
+
+	// theSketch is a reference to the parent sketch
+	PApplet theSketch;
+
+	static final int MIN_CLASS = 16;
+
+	HashMap<Integer, ArrayDeque<AUField>> buckets;   // key is the array length
+	long pooledFloats;                               // floats sitting in the buckets
+	long maxPooledFloats = 1L << 26;                 // past this (256MB), released fields are dropped
+	int hits, misses;
+
+	public AUFieldPool(PApplet _theSketch) {
+		if (_theSketch == null) {
+			AULib.reportError("AUFieldPool", "AUFieldPool", "theSketch is null", "");
+		}
+		theSketch = _theSketch;
+		buckets = new HashMap<Integer, ArrayDeque<AUField>>();
+	}
+
+	/**********************
+	 * Size classes
+	 *********************/
+
+	// the smallest size class that holds _n values
+	static int classSize(int _n) {
+		if (_n <= MIN_CLASS) return MIN_CLASS;
+		long q = Integer.highestOneBit(_n - 1) >> 2;
+		long c = (((_n - 1) / q) + 1) * q;
+		return (c > Integer.MAX_VALUE) ? _n : (int)c;
+	}
+
+	// the largest size class an array of _len values can stand in for
+	static int classFloor(int _len) {
+		if (_len <= MIN_CLASS) return MIN_CLASS;
+		int q = Integer.highestOneBit(_len - 1) >> 2;
+		return (_len / q) * q;
+	}
+
+	/**********************
+	 * Fields
+	 *********************/
+
+	// A _w by _h field of zeros, just like new AUField().
+	public AUField acquire(int _w, int _h) {
+		AUField f = acquireRaw(_w, _h);
+		f.flatten(0);
+		return f;
+	}
+
+	// a pooled copy of _src
+	public AUField dupe(AUField _src) {
+		AUField f = acquireRaw(_src.w, _src.h);
+		_src.copyRows(f);
+		return f;
+	}
+
+	// a field of the right size holding whatever was left in it
+	synchronized AUField acquireRaw(int _w, int _h) {
+		_w = Math.max(1, _w);
+		_h = Math.max(1, _h);
+		int size = classSize(_w*_h);
+		ArrayDeque<AUField> bucket = buckets.get(size);
+		AUField f = (bucket != null) ? bucket.pollLast() : null;
+		if (f == null) {
+			misses++;
+			return new AUField(theSketch, new float[size], 0, _w, 1, _w, _h);
+		}
+		hits++;
+		pooledFloats -= f.data.length;
+		f.reshape(_w, _h);
+		return f;
+	}
+
+	// Give _f back. Nobody should use it after this, since it'll be handed out again.
+	public synchronized void release(AUField _f) {
+		if (_f == null) return;
+		if ((_f.parent != null) || (_f.offset != 0) || (_f.step != 1)) {
+			AULib.reportError("AUFieldPool", "release", "only whole fields can go in the pool, not views or channels of interleaved fields", "");
+			return;
+		}
+		if (_f.data.length < MIN_CLASS) return;
+		if (pooledFloats + _f.data.length > maxPooledFloats) return;   // let this one go
+		int size = classFloor(_f.data.length);
+		ArrayDeque<AUField> bucket = buckets.get(size);
+		if (bucket == null) {
+			bucket = new ArrayDeque<AUField>();
+			buckets.put(size, bucket);
+		}
+		for (AUField g : bucket) {
+			if (g == _f) {
+				AULib.reportError("AUFieldPool", "release", "this field was already released", "");
+				return;
+			}
+		}
+		bucket.addLast(_f);
+		pooledFloats += _f.data.length;
+	}
+
+	/**********************
+	 * Multifields
+	 *********************/
+
+	// Pooled multifields always use LAYOUT_PLANAR.
+	public AUMultiField acquireMulti(int _numFields, int _w, int _h) {
+		_numFields = Math.max(1, _numFields);
+		AUField[] f = new AUField[_numFields];
+		for (int i=0; i<_numFields; i++) f[i] = acquire(_w, _h);
+		return new AUMultiField(theSketch, f, AUMultiField.LAYOUT_PLANAR);
+	}
+
+	public AUMultiField dupe(AUMultiField _src) {
+		AUField[] f = new AUField[_src.fields.length];
+		for (int i=0; i<f.length; i++) f[i] = dupe(_src.fields[i]);
+		return new AUMultiField(theSketch, f, AUMultiField.LAYOUT_PLANAR);
+	}
+
+	public void release(AUMultiField _mf) {
+		if (_mf == null) return;
+		if (_mf.layout != AUMultiField.LAYOUT_PLANAR) {
+			AULib.reportError("AUFieldPool", "release", "only LAYOUT_PLANAR multifields can go in the pool", "");
+			return;
+		}
+		for (int i=0; i<_mf.fields.length; i++) release(_mf.fields[i]);
+	}
+
+	/**********************
+	 * Bookkeeping
+	 *********************/
+
+	// hits were served from the pool, misses needed a new field
+	public int getHits()                 { return hits; }
+	public int getMisses()               { return misses; }
+	public long getPooledBytes()         { return 4*pooledFloats; }
+
+	public synchronized void resetCounters() {
+		hits = 0;
+		misses = 0;
+	}
+
+	public synchronized void setMaxPooledBytes(long _bytes) {
+		maxPooledFloats = Math.max(0, _bytes/4);
+	}
+
+	// drop everything in the pool
+	public synchronized void clear() {
+		buckets.clear();
+		pooledFloats = 0;
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+
+package AULib;
+
+/*************************************************
+* FRAME SINK
+* Somewhere for AUCamera to send its finished frames
+* instead of saving them as images through the sketch.
+*
+*   camera.setFrameSink(new AUVideoFileSink(this, "movie.y4m", AUVideoFileSink.FORMAT_Y4M, 30));
+*
+* begin() is called before the first frame, and end() when
+* the sketch exits or the camera is given another sink.
+* writeFrame() gets the exposure itself: fields 0, 1, and 2
+* hold red, green, and blue, from 0 to 255. It shouldn't
+* change them, and shouldn't hold on to them after it
+* returns, since the camera clears them for the next frame.
+*************************************************/
+
+public interface AUFrameSink {
+
+	void begin(int _w, int _h);
+	void writeFrame(AUMultiField _rgb, int _frameNumber);
+	void end();
+}
@@ -0,0 +1,90 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+
+package AULib;
+
+
+import processing.core.*;
+
+/*************************************************
+* IMAGE SEQUENCE SINK
+* Saves each of AUCamera's frames as its own image,
+* named just like the camera names them:
+* path/frame00000.png, path/frame00001.png, and so on.
+* Unlike the camera's own saving, the frame goes into
+* an image of its own, not into the sketch's window.
+*************************************************/
+
+public class AUImageSequenceSink implements AUFrameSink {
+
+	// theSketch is a reference to the parent sketch
+	PApplet theSketch;
+
+	String path, format;
+	PImage img = null;
+
+	public AUImageSequenceSink(PApplet _theSketch, String _path, String _format) {
+		if (_theSketch == null) {
+			AULib.reportError("AUImageSequenceSink", "AUImageSequenceSink", "theSketch is null", "");
+		}
+		theSketch = _theSketch;
+		path = _path;
+		format = _format;
+	}
+
+	public void begin(int _w, int _h) {
+		img = new PImage(_w, _h, PConstants.RGB);
+	}
+
+	public void writeFrame(AUMultiField _rgb, int _frameNumber) {
+		if (img == null) return;
+		if ((_rgb.w != img.width) || (_rgb.h != img.height) || (_rgb.fields.length < 3)) {
+			AULib.reportError("AUImageSequenceSink", "writeFrame", "the frame is not the size given to begin()", "");
+			return;
+		}
+		final AUField r = _rgb.fields[0];
+		final AUField g = _rgb.fields[1];
+		final AUField b = _rgb.fields[2];
+		final int[] pix = img.pixels;
+		final int w = img.width;
+		AUParallel.forRows(img.height, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				AUPixels.rgbRow(r, g, b, 0, y, null, 0, 0, pix, y*w, w, false);
+			}
+		});
+		// an image with no parent sketch can only save to an absolute path
+		String fullPath = theSketch.savePath(path + "/frame" + PApplet.nf(_frameNumber, 5) + "." + format);
+		if (!img.save(fullPath)) {
+			AULib.reportError("AUImageSequenceSink", "writeFrame", "could not save the frame", fullPath);
+		}
+	}
+
+	public void end() {
+		img = null;
+	}
+}
@@ -0,0 +1,243 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+/*************************************************
+* KERNELS
+* The inner loops of the field operations, one run
+* of n values at a time. This class is the plain scalar
+* version. AUVectorKernels overrides these with SIMD
+* versions when they were built (they're in src-vector,
+* and the rest of the library compiles without them) and
+* jdk.incubator.vector is available (run with --add-modules
+* jdk.incubator.vector); if not, we quietly stay with these.
+* Both versions do the same float operations in the
+* same order on every value, so they give identical results.
+*************************************************/
+
+public class AUKernels {
+
+	static final AUKernels scalarKernels = new AUKernels();
+	static final AUKernels vectorKernels = loadVectorKernels();
+	// read by the worker threads, so a switch shows up there right away
+	static volatile AUKernels active = (vectorKernels != null) ? vectorKernels : scalarKernels;
+
+	static AUKernels loadVectorKernels() {
+		try {
+			Class<?> c = Class.forName("AULib.AUVectorKernels");
+			return (AUKernels)c.getDeclaredConstructor().newInstance();
+		} catch (Throwable t) {   // usually NoClassDefFoundError because the module isn't there
+			return null;
+		}
+	}
+
+	public static boolean isVectorAvailable() {
+		return vectorKernels != null;
+	}
+
+	public static boolean isVectorEnabled() {
+		return active == vectorKernels;
+	}
+
+	public static void setVectorEnabled(boolean _enabled) {
+		if (_enabled && (vectorKernels == null)) {
+			AULib.reportError("AUKernels", "setVectorEnabled", "jdk.incubator.vector is not available, staying with scalar code", "");
+			return;
+		}
+		active = _enabled ? vectorKernels : scalarKernels;
+	}
+
+	// In these, a run of n values starts at d[i] and goes up by ds each time.
+	// ds is 1 unless the field is one channel of an interleaved AUMultiField.
+
+	// d += a
+	void add(float[] d, int i, int ds, int n, float a) {
+		for (int x=0; x<n; x++, i+=ds) {
+			d[i] += a;
+		}
+	}
+
+	// d *= a
+	void mul(float[] d, int i, int ds, int n, float a) {
+		for (int x=0; x<n; x++, i+=ds) {
+			d[i] *= a;
+		}
+	}
+
+	// d += s
+	void add(float[] d, int i, int ds, float[] s, int j, int ss, int n) {
+		for (int x=0; x<n; x++, i+=ds, j+=ss) {
+			d[i] += s[j];
+		}
+	}
+
+	// d *= s
+	void mul(float[] d, int i, int ds, float[] s, int j, int ss, int n) {
+		for (int x=0; x<n; x++, i+=ds, j+=ss) {
+			d[i] *= s[j];
+		}
+	}
+
+	// out[o] = min of the run, out[o+1] = max. n must be at least 1.
+	void minMax(float[] d, int i, int ds, int n, float[] out, int o) {
+		float fmin = d[i];
+		float fmax = d[i];
+		for (int x=0; x<n; x++, i+=ds) {
+			float v = d[i];
+			fmin = Math.min(fmin, v);
+			fmax = Math.max(fmax, v);
+		}
+		out[o] = fmin;
+		out[o+1] = fmax;
+	}
+
+	// d = ((d-from)*scale) + to. Subtracting first keeps values far from zero
+	// accurate, where (d*scale) + (to - from*scale) would cancel.
+	void affine(float[] d, int i, int ds, int n, float from, float scale, float to) {
+		for (int x=0; x<n; x++, i+=ds) {
+			d[i] = ((d[i]-from)*scale) + to;
+		}
+	}
+
+	// One row of AUMultiField.over(), for planar fields (every step is 1).
+	// A's alpha (Aa) and B's alpha (Ba) may be null, meaning opaque.
+	void over(float[] Ar, float[] Ag, float[] Ab, int ai, float[] Aa, int mi,
+	          float[] Br, float[] Bg, float[] Bb, float[] Ba, int bi, int n) {
+		for (int x=0; x<n; x++, ai++, mi++, bi++) {
+			float Aalf = 1.f;
+			if (Aa != null) Aalf = Aa[mi]/255.f;
+			float Balf = 1.f;
+			if (Ba != null) Balf = Ba[bi]/255.f;
+
+			float b2 = (1.f-Aalf) * Balf;
+			float newAlf = Aalf + b2;
+
+			if (newAlf == 0) {
+				Br[bi] = 0;
+				Bg[bi] = 0;
+				Bb[bi] = 0;
+				if (Ba != null) Ba[bi] = 0;
+			} else {
+				Br[bi] = ((Aalf * Ar[ai]) + (b2 * Br[bi]))/newAlf;
+				Bg[bi] = ((Aalf * Ag[ai]) + (b2 * Bg[bi]))/newAlf;
+				Bb[bi] = ((Aalf * Ab[ai]) + (b2 * Bb[bi]))/newAlf;
+				if (Ba != null) Ba[bi] = newAlf * 255.f;
+			}
+		}
+	}
+
+	static final float INV255 = 1.f/255.f;
+
+	// One row of AUMultiField.composite(), for planar fields holding premultiplied
+	// color. With alphas scaled to [0,1], the result is A*Fa + B*Fb, where
+	// Fa = ka0 + (ka1 * B's alpha) and Fb = kb0 + (kb1 * A's alpha); the four
+	// constants pick the Porter-Duff operator. A mask (Am) scales all of A first.
+	// Aa, Am and Ba may be null: no alpha means opaque, no mask means 1.
+	void composite(float[] Ar, float[] Ag, float[] Ab, float[] Aa, int ai, float[] Am, int mi,
+	               float[] Br, float[] Bg, float[] Bb, float[] Ba, int bi, int n,
+	               float ka0, float ka1, float kb0, float kb1, boolean clamp) {
+		for (int x=0; x<n; x++, ai++, mi++, bi++) {
+			float m = (Am != null) ? Am[mi] * INV255 : 1.f;
+			float aA = (Aa != null) ? Aa[ai] : 255.f;
+			float aB = (Ba != null) ? Ba[bi] : 255.f;
+			float fa = (ka0 + (ka1 * (aB * INV255))) * m;
+			float fb = kb0 + (kb1 * ((aA * INV255) * m));
+			float r = (Ar[ai] * fa) + (Br[bi] * fb);
+			float g = (Ag[ai] * fa) + (Bg[bi] * fb);
+			float b = (Ab[ai] * fa) + (Bb[bi] * fb);
+			float a = (aA * fa) + (aB * fb);
+			if (clamp) {
+				r = Math.min(r, 255.f);
+				g = Math.min(g, 255.f);
+				b = Math.min(b, 255.f);
+				a = Math.min(a, 255.f);
+			}
+			Br[bi] = r;
+			Bg[bi] = g;
+			Bb[bi] = b;
+			if (Ba != null) Ba[bi] = a;
+		}
+	}
+
+	// over() for interleaved fields. A's red, green, and blue are A[ai], A[ai+1], and
+	// A[ai+2], and the next pixel's are _as further on. The same goes for B, with its
+	// alpha (if bAlpha) at B[bi+3]. A's alpha (Am) may be its own field 3 or a mask,
+	// with its own step; null means opaque. Same math as over().
+	void overInterleaved(float[] A, int ai, int as, float[] Am, int mi, int ms,
+	                     float[] B, int bi, int bs, boolean bAlpha, int n) {
+		for (int x=0; x<n; x++, ai+=as, mi+=ms, bi+=bs) {
+			float Aalf = 1.f;
+			if (Am != null) Aalf = Am[mi]/255.f;
+			float Balf = 1.f;
+			if (bAlpha) Balf = B[bi+3]/255.f;
+
+			float b2 = (1.f-Aalf) * Balf;
+			float newAlf = Aalf + b2;
+
+			if (newAlf == 0) {
+				B[bi] = 0;
+				B[bi+1] = 0;
+				B[bi+2] = 0;
+				if (bAlpha) B[bi+3] = 0;
+			} else {
+				B[bi]   = ((Aalf * A[ai]) + (b2 * B[bi]))/newAlf;
+				B[bi+1] = ((Aalf * A[ai+1]) + (b2 * B[bi+1]))/newAlf;
+				B[bi+2] = ((Aalf * A[ai+2]) + (b2 * B[bi+2]))/newAlf;
+				if (bAlpha) B[bi+3] = newAlf * 255.f;
+			}
+		}
+	}
+
+	// composite() for interleaved fields, laid out as in overInterleaved(). A's alpha
+	// (if aAlpha) is at A[ai+3]. Am is the mask, or null. Same math as composite().
+	void compositeInterleaved(float[] A, int ai, int as, boolean aAlpha, float[] Am, int mi, int ms,
+	                          float[] B, int bi, int bs, boolean bAlpha, int n,
+	                          float ka0, float ka1, float kb0, float kb1, boolean clamp) {
+		for (int x=0; x<n; x++, ai+=as, mi+=ms, bi+=bs) {
+			float m = (Am != null) ? Am[mi] * INV255 : 1.f;
+			float aA = aAlpha ? A[ai+3] : 255.f;
+			float aB = bAlpha ? B[bi+3] : 255.f;
+			float fa = (ka0 + (ka1 * (aB * INV255))) * m;
+			float fb = kb0 + (kb1 * ((aA * INV255) * m));
+			float r = (A[ai] * fa) + (B[bi] * fb);
+			float g = (A[ai+1] * fa) + (B[bi+1] * fb);
+			float b = (A[ai+2] * fa) + (B[bi+2] * fb);
+			float a = (aA * fa) + (aB * fb);
+			if (clamp) {
+				r = Math.min(r, 255.f);
+				g = Math.min(g, 255.f);
+				b = Math.min(b, 255.f);
+				a = Math.min(a, 255.f);
+			}
+			B[bi] = r;
+			B[bi+1] = g;
+			B[bi+2] = b;
+			if (bAlpha) B[bi+3] = a;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+
+import processing.core.*;
+import java.util.ArrayList;
+
+/*************************************************
+* LAYER STACK
+* A stack of AUMultiFields, each with a blend mode, an
+* opacity, and an optional mask, flattened into one
+* field in a single pass. Calling over() once per layer
+* reads and writes the whole destination each time. Here
+* each pixel works its way up the stack with its color
+* in local variables, and is written out once.
+*
+*   AULayerStack stack = new AULayerStack(this, w, h);
+*   stack.addLayer(background);
+*   stack.addLayer(shadows, AULayerStack.BLEND_MULTIPLY, .6f, null);
+*   stack.addLayer(glow, AULayerStack.BLEND_SCREEN, 1, glowMask);
+*   stack.flatten(result);
+*
+* Layer 0 is at the bottom. Layers hold ordinary (not
+* premultiplied) color, and a layer with a 4th field
+* uses it as its alpha (0 to 255); otherwise it's opaque.
+* The modes are the usual ones:
+*   NORMAL    the layer's color
+*   MULTIPLY  layer * below / 255, so it only darkens
+*   SCREEN    the opposite of multiply, so it only lightens
+*   ADD       layer + below, up to 255
+* On the way up, we carry premultiplied color (color
+* times alpha). Then all four modes are multiplies and
+* adds, and we only divide once per pixel, at the end.
+*************************************************/
+
+public class AULayerStack {
+
+	public static final int BLEND_NORMAL = 0;
+	public static final int BLEND_MULTIPLY = 1;
+	public static final int BLEND_SCREEN = 2;
+	public static final int BLEND_ADD = 3;
+
+	// theSketch is a reference to the parent sketch
+	PApplet theSketch;
+
+	public int w, h;
+
+	ArrayList<AUMultiField> layers = new ArrayList<AUMultiField>();
+	ArrayList<AUField> masks = new ArrayList<AUField>();
+	ArrayList<Integer> modes = new ArrayList<Integer>();
+	ArrayList<Float> opacities = new ArrayList<Float>();
+
+	public AULayerStack(PApplet _theSketch, int _wid, int _hgt) {
+		if (_theSketch == null) {
+			AULib.reportError("AULayerStack", "AULayerStack", "theSketch is null", "");
+		}
+		theSketch = _theSketch;
+		w = Math.max(1, _wid);
+		h = Math.max(1, _hgt);
+	}
+
+	/**********************
+	 * Layers
+	 *********************/
+
+	// Put a layer on top of the stack. Returns its number, or -1 if it can't be used.
+	public int addLayer(AUMultiField _layer) {
+		return addLayer(_layer, BLEND_NORMAL, 1, null);
+	}
+
+	public int addLayer(AUMultiField _layer, int _blendMode, float _opacity, AUField _mask) {
+		if ((_layer == null) || (_layer.fields.length < 3)) {
+			AULib.reportError("AULayerStack", "addLayer", "a layer needs at least 3 fields", "");
+			return -1;
+		}
+		if ((_layer.w != w) || (_layer.h != h)) {
+			AULib.reportError("AULayerStack", "addLayer", "the layer is not the same size as the stack", "layer w="+_layer.w+" h="+_layer.h+" stack w="+w+" h="+h);
+			return -1;
+		}
+		layers.add(_layer);
+		masks.add(null);
+		modes.add(BLEND_NORMAL);
+		opacities.add(1.f);
+		int n = layers.size()-1;
+		setBlendMode(n, _blendMode);
+		setOpacity(n, _opacity);
+		setMask(n, _mask);
+		return n;
+	}
+
+	public int getNumLayers() {
+		return layers.size();
+	}
+
+	public AUMultiField getLayer(int _n) {
+		if (!checkLayer(_n, "getLayer")) return null;
+		return layers.get(_n);
+	}
+
+	public void removeLayer(int _n) {
+		if (!checkLayer(_n, "removeLayer")) return;
+		layers.remove(_n);
+		masks.remove(_n);
+		modes.remove(_n);
+		opacities.remove(_n);
+	}
+
+	public void clear() {
+		layers.clear();
+		masks.clear();
+		modes.clear();
+		opacities.clear();
+	}
+
+	public void setBlendMode(int _n, int _blendMode) {
+		if (!checkLayer(_n, "setBlendMode")) return;
+		if ((_blendMode < BLEND_NORMAL) || (_blendMode > BLEND_ADD)) {
+			AULib.reportError("AULayerStack", "setBlendMode", "unknown blend mode, using BLEND_NORMAL", "blendMode="+_blendMode);
+			_blendMode = BLEND_NORMAL;
+		}
+		modes.set(_n, _blendMode);
+	}
+
+	// 0 is invisible, 1 is as the layer's own alpha says
+	public void setOpacity(int _n, float _opacity) {
+		if (!checkLayer(_n, "setOpacity")) return;
+		opacities.set(_n, AUMisc.jconstrain(_opacity, 0, 1));
+	}
+
+	// The mask (0 to 255) scales the layer's alpha. Pass null to remove it.
+	public void setMask(int _n, AUField _mask) {
+		if (!checkLayer(_n, "setMask")) return;
+		if ((_mask != null) && ((_mask.w != w) || (_mask.h != h))) {
+			AULib.reportError("AULayerStack", "setMask", "the mask is not the same size as the stack", "mask w="+_mask.w+" h="+_mask.h);
+			return;
+		}
+		masks.set(_n, _mask);
+	}
+
+	boolean checkLayer(int _n, String _func) {
+		if ((_n < 0) || (_n >= layers.size())) {
+			AULib.reportError("AULayerStack", _func, "there is no layer "+_n, "numLayers="+layers.size());
+			return false;
+		}
+		return true;
+	}
+
+	/**********************
+	 * Flatten
+	 *********************/
+
+	// Write the stack into _dst, which needs at least 3 fields. If it has a 4th,
+	// that gets the result's alpha. If it doesn't, where the stack isn't opaque the
+	// color is just what's there; put an opaque layer at the bottom to set a background.
+	public void flatten(final AUMultiField _dst) {
+		if ((_dst.fields.length < 3) || (_dst.w != w) || (_dst.h != h)) {
+			AULib.reportError("AULayerStack", "flatten", "the destination needs at least 3 fields and the same size as the stack", "");
+			return;
+		}
+		final int n = layers.size();
+		final AUField[][] f = new AUField[n][];
+		final AUField[] m = new AUField[n];
+		final int[] mode = new int[n];
+		final float[] opacity = new float[n];
+		for (int i=0; i<n; i++) {
+			f[i] = layers.get(i).fields;
+			m[i] = masks.get(i);
+			mode[i] = modes.get(i);
+			opacity[i] = opacities.get(i);
+		}
+		final AUField Dr = _dst.fields[0];
+		final AUField Dg = _dst.fields[1];
+		final AUField Db = _dst.fields[2];
+		final AUField Da = (_dst.fields.length > 3) ? _dst.fields[3] : null;
+		_dst.markAllDirty();
+		AUParallel.forRows(h, w*Math.max(1, n), (y0, y1) -> {
+			// where each layer's row starts
+			int[] ri = new int[n], gi = new int[n], bi = new int[n], ai = new int[n], mi = new int[n];
+			for (int y=y0; y<y1; y++) {
+				for (int i=0; i<n; i++) {
+					ri[i] = f[i][0].index(0, y);
+					gi[i] = f[i][1].index(0, y);
+					bi[i] = f[i][2].index(0, y);
+					if (f[i].length > 3) ai[i] = f[i][3].index(0, y);
+					if (m[i] != null) mi[i] = m[i].index(0, y);
+				}
+				int dr = Dr.index(0, y), dg = Dg.index(0, y), db = Db.index(0, y);
+				int da = (Da != null) ? Da.index(0, y) : 0;
+				for (int x=0; x<w; x++) {
+					// premultiplied color and alpha (0 to 1) of everything so far
+					float r = 0, g = 0, b = 0, a = 0;
+					for (int i=0; i<n; i++) {
+						AUField[] L = f[i];
+						float sa = opacity[i];
+						if (L.length > 3) sa *= L[3].data[ai[i] + (x*L[3].step)] * AUKernels.INV255;
+						if (m[i] != null) sa *= m[i].data[mi[i] + (x*m[i].step)] * AUKernels.INV255;
+						float sr = L[0].data[ri[i] + (x*L[0].step)] * sa;
+						float sg = L[1].data[gi[i] + (x*L[1].step)] * sa;
+						float sb = L[2].data[bi[i] + (x*L[2].step)] * sa;
+						float keep = 1.f - sa;   // how much of what's below shows through
+						switch (mode[i]) {
+							default:
+							case BLEND_NORMAL:
+								r = sr + (r * keep);
+								g = sg + (g * keep);
+								b = sb + (b * keep);
+								break;
+							case BLEND_MULTIPLY:
+								r = (sr * (1.f - a)) + (r * keep) + (sr * r * AUKernels.INV255);
+								g = (sg * (1.f - a)) + (g * keep) + (sg * g * AUKernels.INV255);
+								b = (sb * (1.f - a)) + (b * keep) + (sb * b * AUKernels.INV255);
+								break;
+							case BLEND_SCREEN:
+								r = sr + r - (sr * r * AUKernels.INV255);
+								g = sg + g - (sg * g * AUKernels.INV255);
+								b = sb + b - (sb * b * AUKernels.INV255);
+								break;
+							case BLEND_ADD: {
+								// sa*a*min(255, Cs+Cb), written with premultiplied colors
+								float top = 255.f * sa * a;
+								r = (sr * (1.f - a)) + (r * keep) + Math.min(top, (sr * a) + (r * sa));
+								g = (sg * (1.f - a)) + (g * keep) + Math.min(top, (sg * a) + (g * sa));
+								b = (sb * (1.f - a)) + (b * keep) + Math.min(top, (sb * a) + (b * sa));
+								break;
+							}
+						}
+						a = sa + (a * keep);
+					}
+					float inv = (a > 0) ? 1.f/a : 0;
+					Dr.data[dr] = r * inv;
+					Dg.data[dg] = g * inv;
+					Db.data[db] = b * inv;
+					if (Da != null) Da.data[da] = a * 255.f;
+					dr += Dr.step; dg += Dg.step; db += Db.step;
+					if (Da != null) da += Da.step;
+				}
+			}
+		});
+	}
+}
@@ -536,6 +536,13 @@ public class AULib implements PConstants {
 		return v;
 	}
 
+	// ease() for every value in _in, into _out (which can be _in). This uses a
+	// shared AUEaseTable, so it's much faster, and agrees with ease() to within
+	// a few millionths. Use AUEaseTable.of() yourself if you want another size.
+	public static void ease(int _easeType, float[] _in, float[] _out) {
+		AUEaseTable.shared(_easeType).get(_in, _out);
+	}
+
 	static float cubic(float t) { 
 		return (t*t*t); 
 	}   
@@ -654,6 +661,13 @@ public class AULib implements PConstants {
 		v = AUMisc.jconstrain(v, 0, 1);
 		return v;
 	}
+
+	// wave() for every value in _in, into _out (which can be _in), using a shared
+	// AUEaseTable. The table is rebuilt when _a changes, so if _a is different on
+	// every call, call wave() on each value instead.
+	public static void wave(int _waveType, float[] _in, float _a, float[] _out) {
+		AUEaseTable.sharedWave(_waveType, _a).get(_in, _out);
+	}
 }
 
 
@@ -0,0 +1,205 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+/*************************************************
+* MIP MAP
+* A field's pyramid of smaller copies, each half the size
+* of the one before (rounded up), down to a single value.
+* Every value is the average of the 2x2 block under it.
+* Reading a shrunken or warped field from the right level
+* touches far fewer values than reading the full field,
+* and doesn't alias.
+*
+* The field keeps its pyramid and tells it what changed
+* (through markDirty()), so an update only redoes the
+* blocks over that rectangle, on every level.
+*************************************************/
+
+class AUMipMap {
+
+	AUField src;
+	AUField[] levels;            // levels[0] is the field itself
+	int srcW, srcH;              // the field's size when we built the levels
+	// what's changed in the field since the last update, like the field's own dirty rectangle
+	int dirtyX0, dirtyY0, dirtyX1, dirtyY1;
+	boolean pending;
+
+	AUMipMap(AUField _src) {
+		src = _src;
+		allocate();
+	}
+
+	void allocate() {
+		srcW = src.w;
+		srcH = src.h;
+		int n = 1;
+		for (int lw=srcW, lh=srcH; (lw > 1) || (lh > 1); n++) {
+			lw = (lw+1)/2;
+			lh = (lh+1)/2;
+		}
+		levels = new AUField[n];
+		levels[0] = src;
+		for (int k=1; k<n; k++) {
+			levels[k] = new AUField(src.theSketch, (levels[k-1].w+1)/2, (levels[k-1].h+1)/2);
+		}
+		// anything pending was for the old size, and the new levels need everything anyway
+		pending = false;
+		markDirty(0, 0, srcW, srcH);
+	}
+
+	// The field calls this with a rectangle already clipped to its bounds.
+	// Row bands in AUParallel can call it at the same time.
+	synchronized void markDirty(int _x0, int _y0, int _x1, int _y1) {
+		if (!pending) {
+			dirtyX0 = _x0;
+			dirtyY0 = _y0;
+			dirtyX1 = _x1;
+			dirtyY1 = _y1;
+			pending = true;
+			return;
+		}
+		dirtyX0 = Math.min(dirtyX0, _x0);
+		dirtyY0 = Math.min(dirtyY0, _y0);
+		dirtyX1 = Math.max(dirtyX1, _x1);
+		dirtyY1 = Math.max(dirtyY1, _y1);
+	}
+
+	// Bring the levels up to date with the field. The dirty rectangle halves
+	// (rounding outward) as we go down, and we only rebuild what's under it.
+	synchronized void update() {
+		if (!pending) return;
+		if ((src.w != srcW) || (src.h != srcH)) allocate();
+		int x0 = dirtyX0;
+		int y0 = dirtyY0;
+		int x1 = dirtyX1;
+		int y1 = dirtyY1;
+		for (int k=1; k<levels.length; k++) {
+			x0 = x0/2;
+			y0 = y0/2;
+			x1 = (x1+1)/2;
+			y1 = (y1+1)/2;
+			shrink(levels[k-1], levels[k], x0, y0, x1, y1);
+		}
+		pending = false;
+	}
+
+	// Set points [_x0,_x1) x [_y0,_y1) of _dst to the averages of their blocks in _src.
+	// When _src has an odd size, the last block repeats its edge values.
+	static void shrink(final AUField _src, final AUField _dst, final int _x0, final int _y0, final int _x1, final int _y1) {
+		final int sw = _src.w - 1;
+		final int sh = _src.h - 1;
+		AUParallel.forRows(_y1-_y0, 4*(_x1-_x0), (b0, b1) -> {
+			for (int y=_y0+b0; y<_y0+b1; y++) {
+				int r0 = 2*y;
+				int r1 = Math.min(r0+1, sh);
+				int d = _dst.index(_x0, y);
+				for (int x=_x0; x<_x1; x++, d+=_dst.step) {
+					int c0 = 2*x;
+					int c1 = Math.min(c0+1, sw);
+					_dst.data[d] = (_src.get(c0, r0) + _src.get(c1, r0) + _src.get(c0, r1) + _src.get(c1, r1)) * .25f;
+				}
+			}
+		});
+		_dst.markDirty(_x0, _y0, _x1-_x0, _y1-_y0);
+	}
+
+	/**********************
+	 * Sampling
+	 *********************/
+
+	// Trilinear: bilinear in the two levels around _lod, and blend between them.
+	// (_x, _y) is in the field's own coordinates.
+	float sample(float _x, float _y, float _lod) {
+		int top = levels.length - 1;
+		if (_lod <= 0) return bilinear(src, _x, _y);
+		if (_lod >= top) return levelSample(top, _x, _y);
+		int k = (int)_lod;
+		float t = _lod - k;
+		float a = levelSample(k, _x, _y);
+		if (t == 0) return a;
+		return a + (t * (levelSample(k+1, _x, _y) - a));
+	}
+
+	// Point i of level k covers field points [i*2^k, (i+1)*2^k), so its center is at i*2^k + (2^k-1)/2.
+	float levelSample(int _k, float _x, float _y) {
+		float s = 1.f / (1 << _k);
+		return bilinear(levels[_k], ((_x + .5f) * s) - .5f, ((_y + .5f) * s) - .5f);
+	}
+
+	// Field point (x, y) sits at exactly (x, y). Outside the field, the edge values repeat.
+	static float bilinear(AUField _f, float _x, float _y) {
+		float x = Math.max(0, Math.min(_f.w-1, _x));
+		float y = Math.max(0, Math.min(_f.h-1, _y));
+		int x0 = (int)x;
+		int y0 = (int)y;
+		float fx = x - x0;
+		float fy = y - y0;
+		int x1 = Math.min(x0+1, _f.w-1);
+		int y1 = Math.min(y0+1, _f.h-1);
+		float[] d = _f.data;
+		int r0 = _f.offset + (y0*_f.stride);
+		int r1 = _f.offset + (y1*_f.stride);
+		int c0 = x0*_f.step;
+		int c1 = x1*_f.step;
+		float top = d[r0+c0] + (fx * (d[r0+c1] - d[r0+c0]));
+		float bot = d[r1+c0] + (fx * (d[r1+c1] - d[r1+c0]));
+		return top + (fy * (bot - top));
+	}
+
+	// Catmull-Rom through the 4x4 points around (_x, _y). It passes through
+	// the field's values, but can overshoot them a little near sharp edges.
+	static float bicubic(AUField _f, float _x, float _y) {
+		float x = Math.max(0, Math.min(_f.w-1, _x));
+		float y = Math.max(0, Math.min(_f.h-1, _y));
+		int xi = (int)x;
+		int yi = (int)y;
+		float fx = x - xi;
+		float fy = y - yi;
+		return catmullRom(cubicRow(_f, yi-1, xi, fx), cubicRow(_f, yi, xi, fx),
+		                  cubicRow(_f, yi+1, xi, fx), cubicRow(_f, yi+2, xi, fx), fy);
+	}
+
+	// row _y of the 4x4 block, interpolated across at _fx
+	static float cubicRow(AUField _f, int _y, int _xi, float _fx) {
+		int lastX = _f.w-1;
+		int r = _f.offset + (Math.max(0, Math.min(_f.h-1, _y)) * _f.stride);
+		float p0 = _f.data[r + (Math.max(0, _xi-1) * _f.step)];
+		float p1 = _f.data[r + (_xi * _f.step)];
+		float p2 = _f.data[r + (Math.min(lastX, _xi+1) * _f.step)];
+		float p3 = _f.data[r + (Math.min(lastX, _xi+2) * _f.step)];
+		return catmullRom(p0, p1, p2, p3, _fx);
+	}
+
+	static float catmullRom(float _p0, float _p1, float _p2, float _p3, float _t) {
+		float a = (-.5f*_p0) + (1.5f*_p1) - (1.5f*_p2) + (.5f*_p3);
+		float b = _p0 - (2.5f*_p1) + (2.f*_p2) - (.5f*_p3);
+		float c = (-.5f*_p0) + (.5f*_p2);
+		return (((((a*_t) + b) * _t) + c) * _t) + _p1;
+	}
+}
@@ -50,14 +50,51 @@ public class AUMultiField {
 	// theSketch is a reference to the parent sketch
 	PApplet theSketch;
 	
+	// LAYOUT_PLANAR gives each field its own array. LAYOUT_INTERLEAVED puts all the
+	// fields in one array, pixel by pixel (RGBARGBA...), so everything about one pixel
+	// sits together in memory. That's faster for over(), pixel I/O and getting/setting
+	// colors. The fields are then strided views into that array, and work as usual.
+	// over() and composite() have a fast loop for each layout when both fields use
+	// the same one; mixing the two layouts goes through a slower general loop.
+	public static final int LAYOUT_PLANAR = 0;
+	public static final int LAYOUT_INTERLEAVED = 1;
+	
+	// Porter-Duff operators for composite(). A is this field, B is the one we write into.
+	public static final int COMPOSITE_OVER = 0;   // A on top of B
+	public static final int COMPOSITE_IN = 1;     // A, only where B is
+	public static final int COMPOSITE_OUT = 2;    // A, only where B isn't
+	public static final int COMPOSITE_ATOP = 3;   // A on top of B, only where B is
+	public static final int COMPOSITE_XOR = 4;    // A where B isn't, and B where A isn't
+	public static final int COMPOSITE_PLUS = 5;   // A and B added together, up to 255
+	
+	// { ka0, ka1, kb0, kb1 } for each operator: see AUKernels.composite()
+	static final float[][] COMPOSITE_FACTORS = {
+		{ 1,  0, 1, -1 },   // over
+		{ 0,  1, 0,  0 },   // in
+		{ 1, -1, 0,  0 },   // out
+		{ 0,  1, 1, -1 },   // atop
+		{ 1, -1, 1, -1 },   // xor
+		{ 1,  0, 1,  0 },   // plus
+	};
+	
 	public AUField[] fields;
 	public int w, h;
+	public int layout;
+	
+	// for incremental writes; see AUField.setIncremental()
+	boolean incremental = false;
+	Object lastTarget = null;
+	int lastDx, lastDy;
 	
 	/**********************
 	 * Constructors
 	 *********************/
 
 	public AUMultiField(PApplet _theSketch, int _numFields, int _wid, int _hgt) {
+		this(_theSketch, _numFields, _wid, _hgt, LAYOUT_PLANAR);
+	}
+	
+	public AUMultiField(PApplet _theSketch, int _numFields, int _wid, int _hgt, int _layout) {
 		if (_theSketch == null) {
 			AULib.reportError("AUMultiField", "AUMultiField", "theSketch is null", "");
 		}
@@ -66,8 +103,20 @@ public class AUMultiField {
 		h = Math.max(1, _hgt);
 		_numFields = Math.max(1, _numFields);
 		fields = new AUField[_numFields];
-		for (int i=0; i<_numFields; i++) {
-			 fields[i] = new AUField(theSketch, _wid, _hgt);
+		if (_layout == LAYOUT_INTERLEAVED) {
+			layout = LAYOUT_INTERLEAVED;
+			float[] packed = new float[w*h*_numFields];
+			for (int i=0; i<_numFields; i++) {
+				fields[i] = new AUField(theSketch, packed, i, w*_numFields, _numFields, w, h);
+			}
+		} else {
+			if (_layout != LAYOUT_PLANAR) {
+				AULib.reportError("AUMultiField", "AUMultiField", "unknown layout, using LAYOUT_PLANAR", "layout="+_layout);
+			}
+			layout = LAYOUT_PLANAR;
+			for (int i=0; i<_numFields; i++) {
+				 fields[i] = new AUField(theSketch, _wid, _hgt);
+			}
 		}
 	}
 	
@@ -80,14 +129,10 @@ public class AUMultiField {
 			AULib.reportError("AUMultiField", "flattenRGBA", "less than 4 fields avialable", "fields.length="+Float.toString(fields.length));
 			return;
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				fields[0].z[y][x] = _fr;
-				fields[1].z[y][x] = _fg;
-				fields[2].z[y][x] = _fb;
-				fields[3].z[y][x] = _fa;
-			}
-		}
+		fields[0].flatten(_fr);
+		fields[1].flatten(_fg);
+		fields[2].flatten(_fb);
+		fields[3].flatten(_fa);
 	}
 	
 	public void flattenRGB(float _fr, float _fg, float _fb) {
@@ -95,22 +140,14 @@ public class AUMultiField {
 			AULib.reportError("AUMultiField", "flattenRGB", "less than 3 fields avialable", "fields.length="+Float.toString(fields.length));
 			return;
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				fields[0].z[y][x] = _fr;
-				fields[1].z[y][x] = _fg;
-				fields[2].z[y][x] = _fb;
-			}
-		}
+		fields[0].flatten(_fr);
+		fields[1].flatten(_fg);
+		fields[2].flatten(_fb);
 	}
 
 	public void flatten(float _v) {
 		for (int f=0; f<fields.length; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					fields[f].z[y][x] = _v;
-				}
-			}
+			fields[f].flatten(_v);
 		}
 	}
 	
@@ -119,11 +156,86 @@ public class AUMultiField {
 			AULib.reportError("AUMultiField", "flattenField", "field "+_fieldNumber+" is not present", "fields.length="+Float.toString(fields.length));
 			return;
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				fields[_fieldNumber].z[y][x] = _v;
-			}
+		fields[_fieldNumber].flatten(_v);
+	}
+	
+	// a multifield made of fields we already have (they must all be the same size)
+	AUMultiField(PApplet _theSketch, AUField[] _fields, int _layout) {
+		theSketch = _theSketch;
+		fields = _fields;
+		w = _fields[0].w;
+		h = _fields[0].h;
+		layout = _layout;
+	}
+	
+	/**********************
+	 * Views
+	 *********************/
+	
+	// A _w by _h window into every field, starting at (_x,_y). See AUField.view().
+	// It's an AUMultiField, so over(), toPixels() and the rest all work on it.
+	public AUMultiField view(int _x, int _y, int _w, int _h) {
+		AUField[] vf = new AUField[fields.length];
+		vf[0] = fields[0].view(_x, _y, _w, _h);
+		for (int f=1; f<fields.length; f++) {
+			vf[f] = fields[f].view(vf[0].parentX, vf[0].parentY, vf[0].w, vf[0].h);
+		}
+		return new AUMultiField(theSketch, vf, layout);
+	}
+	
+	/**********************
+	 * Dirty rectangle
+	 *********************/
+	
+	// These work on every field together. Each field also keeps its own.
+	
+	public void markDirty(int _x, int _y, int _w, int _h) {
+		for (int f=0; f<fields.length; f++) fields[f].markDirty(_x, _y, _w, _h);
+	}
+	
+	public void markAllDirty() {
+		for (int f=0; f<fields.length; f++) fields[f].markAllDirty();
+	}
+	
+	public void clearDirty() {
+		for (int f=0; f<fields.length; f++) fields[f].clearDirty();
+	}
+	
+	public boolean isDirty() {
+		return getDirtyRect() != null;
+	}
+	
+	// returns { x, y, w, h } holding every field's dirty rectangle, or null if nothing has changed
+	public int[] getDirtyRect() {
+		return dirtyRect(fields.length);
+	}
+	
+	int[] dirtyRect(int _numFields) {
+		int x0 = w;
+		int y0 = h;
+		int x1 = 0;
+		int y1 = 0;
+		for (int f=0; f<_numFields; f++) {
+			AUField fld = fields[f];
+			if (!fld.isDirty()) continue;
+			x0 = Math.min(x0, fld.dirtyX0);
+			y0 = Math.min(y0, fld.dirtyY0);
+			x1 = Math.max(x1, fld.dirtyX1);
+			y1 = Math.max(y1, fld.dirtyY1);
 		}
+		if ((x0 >= x1) || (y0 >= y1)) return null;
+		return new int[] { x0, y0, x1-x0, y1-y0 };
+	}
+	
+	// RGBtoPixels() without a mask, to the same place as last time, only writes
+	// what's changed in the first three fields. See AUField.setIncremental().
+	public void setIncremental(boolean _incremental) {
+		incremental = _incremental;
+		lastTarget = null;
+	}
+	
+	public boolean isIncremental() {
+		return incremental;
 	}
 	
 	/**********************
@@ -151,22 +263,37 @@ public class AUMultiField {
 			theSketch.loadPixels();
 			thesePixels = theSketch.pixels;
 		}
-		for (int y=0; y<h; y++) {
-			if (y >= hgt) continue;
-			for (int x=0; x<w; x++) {
-				if (x >= wid) continue;
-				int c = thesePixels[(y*wid)+x];
-				/*
-				int c = 0;
-				if (_pg != null) c = _pg.pixels[(y*wid)+x];
-				else c = theSketch.pixels[(y*wid)+x];
-				*/
-				fields[0].z[y][x] = (c>>16) & 0xFF;//AUMisc.jred(c);
-				fields[1].z[y][x] = (c>>8) & 0xFF;//AUMisc.jgreen(c);				
-				fields[2].z[y][x] = c & 0xFF;//AUMisc.jblue(c);
-				if (_saveAlpha) fields[3].z[y][x] = (c>>24) & 0xFF;//AUMisc.jalpha(c);
+		markAllDirty();
+		final AUField fr = fields[0];
+		final AUField fg = fields[1];
+		final AUField fb = fields[2];
+		final AUField fa = _saveAlpha ? fields[3] : null;
+		final int rowLen = Math.min(w, wid);
+		final int pixWid = wid;
+		final int[] pix = thesePixels;
+		// each band of rows reads its own part of the pixels, so the bands can run at once
+		AUParallel.forRows(Math.min(h, hgt), rowLen, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int p = y*pixWid;
+				int ri = fr.index(0, y);
+				int gi = fg.index(0, y);
+				int bi = fb.index(0, y);
+				int ai = (fa != null) ? fa.index(0, y) : 0;
+				for (int x=0; x<rowLen; x++, p++) {
+					int c = pix[p];
+					fr.data[ri] = (c>>16) & 0xFF;//AUMisc.jred(c);
+					fg.data[gi] = (c>>8) & 0xFF;//AUMisc.jgreen(c);				
+					fb.data[bi] = c & 0xFF;//AUMisc.jblue(c);
+					ri += fr.step;
+					gi += fg.step;
+					bi += fb.step;
+					if (fa != null) {
+						fa.data[ai] = (c>>24) & 0xFF;//AUMisc.jalpha(c);
+						ai += fa.step;
+					}
+				}
 			}
-		}
+		});
 	}
 	
 	public void RGBfromPixels() {
@@ -274,11 +401,7 @@ public class AUMultiField {
 		}
 		int numFields = Math.min(_mf.fields.length, fields.length);
 		for (int f=0; f<numFields; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					fields[f].z[y][x] += _mf.fields[f].z[y][x];
-				}
-			}
+			fields[f].add(_mf.fields[f]);
 		}
 	}
 	
@@ -289,11 +412,7 @@ public class AUMultiField {
 		}
 		int numFields = Math.min(_mf.fields.length, fields.length);
 		for (int f=0; f<numFields; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					fields[f].z[y][x] *= _mf.fields[f].z[y][x];
-				}
-			}
+			fields[f].mul(_mf.fields[f]);
 		}
 	}
 	
@@ -302,28 +421,41 @@ public class AUMultiField {
 	 *********************/
 	
 	public AUMultiField dupe() {
-		AUMultiField mf = new AUMultiField(theSketch, fields.length, w, h);
+		AUMultiField mf = new AUMultiField(theSketch, fields.length, w, h, layout);
 		for (int f=0; f<fields.length; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					mf.fields[f].z[y][x] = fields[f].z[y][x];
-				}
-			}
+			fields[f].copy(mf.fields[f]);
 		}
 		return mf;
 	}
 	
+	// Like dupe(), but into a multifield you already have, so there's nothing to allocate.
+	// _dst needs the same number of fields; if it's planar, it's resized to match us.
+	public AUMultiField dupeInto(AUMultiField _dst) {
+		if (_dst.fields.length != fields.length) {
+			AULib.reportError("AUMultiField", "dupeInto", "the two multifields have different numbers of fields", "");
+			return _dst;
+		}
+		if ((_dst.w != w) || (_dst.h != h)) {
+			if (_dst.layout != LAYOUT_PLANAR) {
+				AULib.reportError("AUMultiField", "dupeInto", "can't resize an interleaved multifield", "");
+				return _dst;
+			}
+			for (int f=0; f<fields.length; f++) fields[f].dupeInto(_dst.fields[f]);
+			_dst.w = _dst.fields[0].w;
+			_dst.h = _dst.fields[0].h;
+			return _dst;
+		}
+		for (int f=0; f<fields.length; f++) fields[f].copyRows(_dst.fields[f]);
+		return _dst;
+	}
+	
 	public void copy(AUMultiField _dst) {
 		if ((_dst.w != w) || (_dst.h != h) || (_dst.fields.length != fields.length)) {
 			AULib.reportError("AUMultiField", "copy", "the two fields do not have the same size or depth", "");
 			return;
 		}
 		for (int f=0; f<fields.length; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					_dst.fields[f].z[y][x] = fields[f].z[y][x];
-				}
-			}
+			fields[f].copy(_dst.fields[f]);
 		}
 	}
 	
@@ -333,11 +465,7 @@ public class AUMultiField {
 			return;
 		}
 
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				fields[to].z[y][x] = fields[from].z[y][x];
-			}
-		}
+		fields[from].copy(fields[to]);
 	}
 	
 	public void swapFields(int a, int b) {
@@ -345,13 +473,21 @@ public class AUMultiField {
 			AULib.reportError("AUMultiField", "swapFields", "either to or from is larger than the number of fields available", "");
 			return;
 		}
-		for (int y=0; y<h; y++) {
-			for (int x=0; x<w; x++) {
-				float old_a = fields[a].z[y][x];
-				fields[a].z[y][x] = fields[b].z[y][x];
-				fields[b].z[y][x] = old_a;
+		final AUField fa = fields[a];
+		final AUField fb = fields[b];
+		fa.markAllDirty();
+		fb.markAllDirty();
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int i = fa.index(0, y);
+				int j = fb.index(0, y);
+				for (int x=0; x<w; x++, i+=fa.step, j+=fb.step) {
+					float old_a = fa.data[i];
+					fa.data[i] = fb.data[j];
+					fb.data[j] = old_a;
+				}
 			}
-		}
+		});
 	}
 	
 	public void copySeveralFields(int from, int to, int n) {
@@ -372,57 +508,130 @@ public class AUMultiField {
 		}
 	}
 	
+	/**********************
+	 * Compact storage
+	 *********************/
+	
+	// A compact copy of each field (see AUCompactField), in 1 or 2 bytes per value.
+	// This is a snapshot: the multifield keeps its own floats, so memory only goes
+	// down if you let go of it (or release it to an AUFieldPool) and make
+	// a new one later to load with fromCompact(). The compact copies can't be used
+	// as fields themselves.
+	public AUCompactField[] toCompact(int _storage) {
+		return toCompact(_storage, 0, 255);
+	}
+	
+	public AUCompactField[] toCompact(int _storage, float _lo, float _hi) {
+		AUCompactField[] c = new AUCompactField[fields.length];
+		for (int f=0; f<fields.length; f++) c[f] = new AUCompactField(fields[f], _storage, _lo, _hi);
+		return c;
+	}
+	
+	// load the values back from toCompact()
+	public void fromCompact(AUCompactField[] _src) {
+		if ((_src == null) || (_src.length != fields.length)) {
+			AULib.reportError("AUMultiField", "fromCompact", "there must be one compact field for each of the "+fields.length+" fields", "");
+			return;
+		}
+		for (int f=0; f<fields.length; f++) {
+			if ((_src[f].w != w) || (_src[f].h != h)) {
+				AULib.reportError("AUMultiField", "fromCompact", "compact field "+f+" is not the same size as the multifield", "");
+				return;
+			}
+		}
+		for (int f=0; f<fields.length; f++) _src[f].toField(fields[f]);
+	}
+	
+	/**********************
+	 * Blur
+	 *********************/
+	
+	// each of these blurs every field the same way (see AUField)
+	public void boxBlur(int _radius) {
+		boxBlur(_radius, _radius);
+	}
+	
+	public void boxBlur(int _radiusX, int _radiusY) {
+		for (int i=0; i<fields.length; i++) fields[i].boxBlur(_radiusX, _radiusY);
+	}
+	
+	public void gaussianBlur(float _sigma) {
+		gaussianBlur(_sigma, _sigma);
+	}
+	
+	public void gaussianBlur(float _sigmaX, float _sigmaY) {
+		for (int i=0; i<fields.length; i++) fields[i].gaussianBlur(_sigmaX, _sigmaY);
+	}
+	
+	public void convolve(float[] _kernel) {
+		convolve(_kernel, _kernel);
+	}
+	
+	public void convolve(float[] _kernelX, float[] _kernelY) {
+		for (int i=0; i<fields.length; i++) fields[i].convolve(_kernelX, _kernelY);
+	}
+	
 	/**********************
 	 * Set range
 	 *********************/
 
+	// { min, max } over the first _numFields fields taken together
+	public float[] getRangeTogether(int _numFields) {
+		int numFields = Math.max(1, Math.min(fields.length, _numFields));
+		return AUReduce.combine(AUReduce.minMax(fields, numFields));
+	}
+	
+	// { min, max } for each of the first _numFields fields
+	public float[][] getRangeSeparate(int _numFields) {
+		int numFields = Math.max(1, Math.min(fields.length, _numFields));
+		return AUReduce.minMax(fields, numFields);
+	}
+
 	public void setRangeTogether(float _zmin, float _zmax, int _numFields) {
+		float[] mm = getRangeTogether(_numFields);
+		setRangeTogether(_zmin, _zmax, _numFields, mm[0], mm[1]);
+	}
+
+	// use these if you already know the extremes, and we'll skip the scan
+	public void setRangeTogether(float _zmin, float _zmax, int _numFields, float _fromMin, float _fromMax) {
 		int numFields = Math.min(fields.length, _numFields);
-		float fmin = fields[0].z[0][0];
-		float fmax = fmin;
-		for (int f=0; f<numFields; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					float zv = fields[f].z[y][x];
-					fmin = Math.min(fmin, zv);
-					fmax = Math.max(fmax, zv);
-				}
-			}
-		}
-		for (int f=0; f<numFields; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					fields[f].z[y][x] = AUMisc.jmap(fields[f].z[y][x], fmin, fmax, _zmin, _zmax);
-				}
-			}
-		}
+		if (numFields < 1) return;
+		float[] from = new float[numFields];
+		float[] scl = new float[numFields];
+		float[] to = new float[numFields];
+		java.util.Arrays.fill(from, _fromMin);
+		java.util.Arrays.fill(scl, AUReduce.scale(_fromMin, _fromMax, _zmin, _zmax));
+		java.util.Arrays.fill(to, _zmin);
+		AUReduce.remap(fields, numFields, from, scl, to);
 	}
 
 	public void setRangeSeparate(float _zmin, float _zmax, int _numFields) {
-		int numFields = Math.min(fields.length, _numFields);
-		float[] minVals = new float[fields.length];
-		float[] maxVals = new float[fields.length];
-		for (int f=0; f<numFields; f++) {
-			minVals[f] = fields[f].z[0][0];
-			maxVals[f] = minVals[f];
-		}
-		for (int f=0; f<numFields; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					float fv = fields[f].z[y][x];
-					minVals[f] = Math.min(minVals[f], fv);
-					maxVals[f] = Math.max(maxVals[f], fv);
-				}
-			}
+		float[][] mm = getRangeSeparate(_numFields);
+		float[] minVals = new float[mm.length];
+		float[] maxVals = new float[mm.length];
+		for (int f=0; f<mm.length; f++) {
+			minVals[f] = mm[f][0];
+			maxVals[f] = mm[f][1];
 		}
+		setRangeSeparate(_zmin, _zmax, _numFields, minVals, maxVals);
+	}
 
+	public void setRangeSeparate(float _zmin, float _zmax, int _numFields, float[] _fromMins, float[] _fromMaxs) {
+		int numFields = Math.min(fields.length, _numFields);
+		if (numFields < 1) return;
+		if ((_fromMins == null) || (_fromMaxs == null) || (_fromMins.length < numFields) || (_fromMaxs.length < numFields)) {
+			AULib.reportError("AUMultiField", "setRangeSeparate", "there must be a min and max for each of the "+numFields+" fields", "");
+			return;
+		}
+		float[] from = new float[numFields];
+		float[] scl = new float[numFields];
+		float[] to = new float[numFields];
 		for (int f=0; f<numFields; f++) {
-			for (int y=0; y<h; y++) {
-				for (int x=0; x<w; x++) {
-					fields[f].z[y][x] = AUMisc.jmap(fields[f].z[y][x], minVals[f], maxVals[f], _zmin, _zmax);
-				}
-			}
+			from[f] = _fromMins[f];
+			scl[f] = AUReduce.scale(_fromMins[f], _fromMaxs[f], _zmin, _zmax);
+			to[f] = _zmin;
 		}
+		AUReduce.remap(fields, numFields, from, scl, to);
 	}
 	
 	public void setRangeTogether(float _zmin, float _zmax) {
@@ -477,9 +686,9 @@ public class AUMultiField {
 			AULib.reportError("AUMultiField", "setTriple", "there are not at least 3 fields available", "fields.length="+Float.toString(fields.length));
 			return;
 		}
-		fields[0].z[_y][_x] = _v0;
-		fields[1].z[_y][_x] = _v1;
-		fields[2].z[_y][_x] = _v2;
+		fields[0].set(_x, _y, _v0);
+		fields[1].set(_x, _y, _v1);
+		fields[2].set(_x, _y, _v2);
 	}
 	
 	public void setQuad(int _x, int _y, float _v0, float _v1, float _v2, float _v3) {
@@ -491,10 +700,10 @@ public class AUMultiField {
 			AULib.reportError("AUMultiField", "setQuad", "there are not at least 4 fields available", "fields.length="+Float.toString(fields.length));
 			return;
 		}
-		fields[0].z[_y][_x] = _v0;
-		fields[1].z[_y][_x] = _v1;
-		fields[2].z[_y][_x] = _v2;
-		fields[3].z[_y][_x] = _v3;
+		fields[0].set(_x, _y, _v0);
+		fields[1].set(_x, _y, _v1);
+		fields[2].set(_x, _y, _v2);
+		fields[3].set(_x, _y, _v3);
 	}
 		
 	/**********************
@@ -533,11 +742,11 @@ public class AUMultiField {
 			AULib.reportError("AUMultiField", "setColor", "there are not at least "+fieldsNeeded+" fields available", "fields.length="+Float.toString(fields.length));
 			return 0;
 		}
-		int red = Math.round(fields[0].z[_y][_x]);
-		int grn = Math.round(fields[1].z[_y][_x]);
-		int blu = Math.round(fields[2].z[_y][_x]);
+		int red = Math.round(fields[0].get(_x, _y));
+		int grn = Math.round(fields[1].get(_x, _y));
+		int blu = Math.round(fields[2].get(_x, _y));
 		int alf = 255;
-		if (_getAlpha) alf = (int)(fields[3].z[_y][_x]);
+		if (_getAlpha) alf = (int)(fields[3].get(_x, _y));
 		//int clr = AUMisc.jcolor(red, grn, blu, alf);
 		int clr = ((alf&0xFF)<<24) | ((red&0xFF)<<16) | ((grn&0xFF)<<8) | (blu&0xFF);
 		return clr;
@@ -583,35 +792,240 @@ public class AUMultiField {
 			AalphaField = fields[3];
 		}
 		
-		for (int y=0; y<h; y++) {
+		final AUField Am = AalphaField;
+		final AUField Ba = (B.fields.length > 3) ? B.fields[3] : null;
+		B.markAllDirty();
+		if (isPlanar(fields, 3) && isPlanar(B.fields, B.fields.length) && ((Am == null) || (Am.step == 1))) {
+			final AUKernels k = AUKernels.active;
+			AUParallel.forRows(h, w, (y0, y1) -> {
+				for (int y=y0; y<y1; y++) {
+					k.over(fields[0].data, fields[1].data, fields[2].data, fields[0].index(0, y),
+					       (Am != null) ? Am.data : null, (Am != null) ? Am.index(0, y) : 0,
+					       B.fields[0].data, B.fields[1].data, B.fields[2].data, (Ba != null) ? Ba.data : null,
+					       B.fields[0].index(0, y), w);
+				}
+			});
+		} else if (isInterleaved(fields, 3) && isInterleaved(B.fields, B.fields.length)) {
+			final AUKernels k = AUKernels.active;
+			final AUField A0 = fields[0];
+			final AUField B0 = B.fields[0];
+			AUParallel.forRows(h, w, (y0, y1) -> {
+				for (int y=y0; y<y1; y++) {
+					k.overInterleaved(A0.data, A0.index(0, y), A0.step,
+					                  (Am != null) ? Am.data : null, (Am != null) ? Am.index(0, y) : 0, (Am != null) ? Am.step : 0,
+					                  B0.data, B0.index(0, y), B0.step, Ba != null, w);
+				}
+			});
+		} else {
+			AUParallel.forRows(h, w, (y0, y1) -> overStrided(B, Am, Ba, y0, y1));
+		}
+	}
+	
+	// true if the first _n fields are all step 1 and line up index for index
+	static boolean isPlanar(AUField[] _fields, int _n) {
+		for (int f=0; f<_n; f++) {
+			if ((_fields[f].step != 1) || (_fields[f].offset != _fields[0].offset) || (_fields[f].stride != _fields[0].stride)) return false;
+		}
+		return true;
+	}
+	
+	// true if the first _n fields share one array, with field f at offset f of each pixel
+	static boolean isInterleaved(AUField[] _fields, int _n) {
+		AUField f0 = _fields[0];
+		if (f0.step < _n) return false;
+		for (int f=1; f<_n; f++) {
+			AUField g = _fields[f];
+			if ((g.data != f0.data) || (g.offset != f0.offset+f) || (g.step != f0.step) || (g.stride != f0.stride)) return false;
+		}
+		return true;
+	}
+	
+	// over() for any mix of layouts. Same math as AUKernels.over().
+	void overStrided(AUMultiField B, AUField Am, AUField Ba, int _y0, int _y1) {
+		AUField Ar = fields[0];
+		AUField Ag = fields[1];
+		AUField Ab = fields[2];
+		AUField Br = B.fields[0];
+		AUField Bg = B.fields[1];
+		AUField Bb = B.fields[2];
+		for (int y=_y0; y<_y1; y++) {
+			int ar = Ar.index(0, y), ag = Ag.index(0, y), ab = Ab.index(0, y);
+			int br = Br.index(0, y), bg = Bg.index(0, y), bb = Bb.index(0, y);
+			int mi = (Am != null) ? Am.index(0, y) : 0;
+			int ba = (Ba != null) ? Ba.index(0, y) : 0;
 			for (int x=0; x<w; x++) {
-
-				float Ared = fields[0].z[y][x];
-				float Agrn = fields[1].z[y][x];
-				float Ablu = fields[2].z[y][x];
 				float Aalf = 1.f;
-				if (AalphaField != null) Aalf = AalphaField.z[y][x]/255.f;
-
-				float Bred = B.fields[0].z[y][x];
-				float Bgrn = B.fields[1].z[y][x];
-				float Bblu = B.fields[2].z[y][x];
+				if (Am != null) Aalf = Am.data[mi]/255.f;
 				float Balf = 1.f;
-				if (B.fields.length > 3) Balf = B.fields[3].z[y][x]/255.f;
-				
+				if (Ba != null) Balf = Ba.data[ba]/255.f;
+
 				float b2 = (1.f-Aalf) * Balf;
 				float newAlf = Aalf + b2;
-				
+
 				if (newAlf == 0) {
-					B.fields[0].z[y][x] = 0;
-					B.fields[1].z[y][x] = 0;
-					B.fields[2].z[y][x] = 0;
-					if (B.fields.length > 3) B.fields[3].z[y][x] = 0;
+					Br.data[br] = 0;
+					Bg.data[bg] = 0;
+					Bb.data[bb] = 0;
+					if (Ba != null) Ba.data[ba] = 0;
 				} else {
-					B.fields[0].z[y][x] = ((Aalf * Ared) + (b2 * Bred))/newAlf;
-					B.fields[1].z[y][x] = ((Aalf * Agrn) + (b2 * Bgrn))/newAlf;
-					B.fields[2].z[y][x] = ((Aalf * Ablu) + (b2 * Bblu))/newAlf;
-					if (B.fields.length > 3) B.fields[3].z[y][x] = newAlf * 255.f;
+					Br.data[br] = ((Aalf * Ar.data[ar]) + (b2 * Br.data[br]))/newAlf;
+					Bg.data[bg] = ((Aalf * Ag.data[ag]) + (b2 * Bg.data[bg]))/newAlf;
+					Bb.data[bb] = ((Aalf * Ab.data[ab]) + (b2 * Bb.data[bb]))/newAlf;
+					if (Ba != null) Ba.data[ba] = newAlf * 255.f;
+				}
+				ar += Ar.step; ag += Ag.step; ab += Ab.step;
+				br += Br.step; bg += Bg.step; bb += Bb.step;
+				if (Am != null) mi += Am.step;
+				if (Ba != null) ba += Ba.step;
+			}
+		}
+	}
+	
+	/**********************
+	 * Premultiplied alpha
+	 *********************/
+	
+	// In premultiplied form, each color is already scaled by its alpha (field 3,
+	// from 0 to 255), so red 200 at alpha 51 is stored as red 40. composite()
+	// works on this form, because then every operator is just multiplies and adds.
+	// Call unpremultiply() before over() or RGBAtoPixels(), which expect ordinary colors.
+	public void premultiply() {
+		if (fields.length < 4) {
+			AULib.reportError("AUMultiField", "premultiply", "there are not at least 4 fields available", "fields.length="+fields.length);
+			return;
+		}
+		markAllDirty();
+		AUParallel.forRows(h, w*3, (y0, y1) -> {
+			AUField a = fields[3];
+			for (int y=y0; y<y1; y++) {
+				for (int f=0; f<3; f++) {
+					AUField c = fields[f];
+					for (int x=0, i=c.index(0, y), j=a.index(0, y); x<w; x++, i+=c.step, j+=a.step) {
+						c.data[i] *= a.data[j] * AUKernels.INV255;
+					}
+				}
+			}
+		});
+	}
+	
+	// back to ordinary colors; where alpha is 0 the color becomes 0
+	public void unpremultiply() {
+		if (fields.length < 4) {
+			AULib.reportError("AUMultiField", "unpremultiply", "there are not at least 4 fields available", "fields.length="+fields.length);
+			return;
+		}
+		markAllDirty();
+		AUParallel.forRows(h, w*3, (y0, y1) -> {
+			AUField a = fields[3];
+			for (int y=y0; y<y1; y++) {
+				for (int f=0; f<3; f++) {
+					AUField c = fields[f];
+					for (int x=0, i=c.index(0, y), j=a.index(0, y); x<w; x++, i+=c.step, j+=a.step) {
+						float alf = a.data[j];
+						c.data[i] = (alf > 0) ? (c.data[i] * 255.f) / alf : 0;
+					}
+				}
+			}
+		});
+	}
+	
+	/**********************
+	 * Porter-Duff
+	 *********************/
+	
+	// Combine this field (A) with B using one of the COMPOSITE_ operators, writing
+	// the result into B. Both must hold premultiplied color (see premultiply()).
+	// A field with only 3 layers counts as opaque. If B has only 3, the result's
+	// alpha is thrown away. The optional mask scales A (color and alpha) by mask/255.
+	public void composite(AUMultiField B, int _op) {
+		composite(B, _op, null);
+	}
+	
+	public void composite(AUMultiField B, int _op, AUField _mask) {
+		if ((fields.length < 3) || (B.fields.length < 3)) {
+			AULib.reportError("AUMultiField", "composite", "both fields need at least 3 layers", "A="+fields.length+" B="+B.fields.length);
+			return;
+		}
+		if ((B.w != w) || (B.h != h) || ((_mask != null) && ((_mask.w != w) || (_mask.h != h)))) {
+			AULib.reportError("AUMultiField", "composite", "the fields and mask do not have the same size", "");
+			return;
+		}
+		if ((_op < 0) || (_op >= COMPOSITE_FACTORS.length)) {
+			AULib.reportError("AUMultiField", "composite", "unknown operator, using COMPOSITE_OVER", "op="+_op);
+			_op = COMPOSITE_OVER;
+		}
+		final float[] k = COMPOSITE_FACTORS[_op];
+		final boolean clamp = (_op == COMPOSITE_PLUS);
+		final AUField Aa = (fields.length > 3) ? fields[3] : null;
+		final AUField Am = _mask;
+		final AUField Ba = (B.fields.length > 3) ? B.fields[3] : null;
+		B.markAllDirty();
+		if (isPlanar(fields, (Aa != null) ? 4 : 3) && isPlanar(B.fields, (Ba != null) ? 4 : 3) && ((Am == null) || (Am.step == 1))) {
+			final AUKernels kern = AUKernels.active;
+			AUParallel.forRows(h, w, (y0, y1) -> {
+				for (int y=y0; y<y1; y++) {
+					kern.composite(fields[0].data, fields[1].data, fields[2].data, (Aa != null) ? Aa.data : null, fields[0].index(0, y),
+					               (Am != null) ? Am.data : null, (Am != null) ? Am.index(0, y) : 0,
+					               B.fields[0].data, B.fields[1].data, B.fields[2].data, (Ba != null) ? Ba.data : null,
+					               B.fields[0].index(0, y), w, k[0], k[1], k[2], k[3], clamp);
+				}
+			});
+		} else if (isInterleaved(fields, (Aa != null) ? 4 : 3) && isInterleaved(B.fields, (Ba != null) ? 4 : 3)) {
+			final AUKernels kern = AUKernels.active;
+			final AUField A0 = fields[0];
+			final AUField B0 = B.fields[0];
+			AUParallel.forRows(h, w, (y0, y1) -> {
+				for (int y=y0; y<y1; y++) {
+					kern.compositeInterleaved(A0.data, A0.index(0, y), A0.step, Aa != null,
+					                          (Am != null) ? Am.data : null, (Am != null) ? Am.index(0, y) : 0, (Am != null) ? Am.step : 0,
+					                          B0.data, B0.index(0, y), B0.step, Ba != null, w, k[0], k[1], k[2], k[3], clamp);
+				}
+			});
+		} else {
+			AUParallel.forRows(h, w, (y0, y1) -> compositeStrided(B, Aa, Am, Ba, k, clamp, y0, y1));
+		}
+	}
+	
+	// composite() for any mix of layouts. Same math as AUKernels.composite().
+	void compositeStrided(AUMultiField B, AUField Aa, AUField Am, AUField Ba, float[] k, boolean clamp, int _y0, int _y1) {
+		AUField Ar = fields[0];
+		AUField Ag = fields[1];
+		AUField Ab = fields[2];
+		AUField Br = B.fields[0];
+		AUField Bg = B.fields[1];
+		AUField Bb = B.fields[2];
+		final float INV255 = AUKernels.INV255;
+		for (int y=_y0; y<_y1; y++) {
+			int ar = Ar.index(0, y), ag = Ag.index(0, y), ab = Ab.index(0, y);
+			int br = Br.index(0, y), bg = Bg.index(0, y), bb = Bb.index(0, y);
+			int ai = (Aa != null) ? Aa.index(0, y) : 0;
+			int mi = (Am != null) ? Am.index(0, y) : 0;
+			int ba = (Ba != null) ? Ba.index(0, y) : 0;
+			for (int x=0; x<w; x++) {
+				float m = (Am != null) ? Am.data[mi] * INV255 : 1.f;
+				float aA = (Aa != null) ? Aa.data[ai] : 255.f;
+				float aB = (Ba != null) ? Ba.data[ba] : 255.f;
+				float fa = (k[0] + (k[1] * (aB * INV255))) * m;
+				float fb = k[2] + (k[3] * ((aA * INV255) * m));
+				float r = (Ar.data[ar] * fa) + (Br.data[br] * fb);
+				float g = (Ag.data[ag] * fa) + (Bg.data[bg] * fb);
+				float b = (Ab.data[ab] * fa) + (Bb.data[bb] * fb);
+				float a = (aA * fa) + (aB * fb);
+				if (clamp) {
+					r = Math.min(r, 255.f);
+					g = Math.min(g, 255.f);
+					b = Math.min(b, 255.f);
+					a = Math.min(a, 255.f);
 				}
+				Br.data[br] = r;
+				Bg.data[bg] = g;
+				Bb.data[bb] = b;
+				if (Ba != null) Ba.data[ba] = a;
+				ar += Ar.step; ag += Ag.step; ab += Ab.step;
+				br += Br.step; bg += Bg.step; bb += Bb.step;
+				if (Aa != null) ai += Aa.step;
+				if (Am != null) mi += Am.step;
+				if (Ba != null) ba += Ba.step;
 			}
 		}
 	}
@@ -639,79 +1053,63 @@ public class AUMultiField {
 		else if (_useLayer3AsMask) thisMask = fields[3];
 		int wid = 0;
 		int hgt = 0;
+		Object target = (_pg != null) ? _pg : theSketch;
+		thesePixels = (_pg != null) ? _pg.pixels : theSketch.pixels;
+		// in incremental mode, the pixels already hold everything outside the dirty rectangle
+		boolean onlyDirty = incremental && (thisMask == null) && (target == lastTarget) && 
+		                    (_dx == lastDx) && (_dy == lastDy) && (thesePixels != null);
+		int[] rect = { 0, 0, (int)w, (int)h };
+		if (onlyDirty) {
+			rect = dirtyRect(3);
+			if (rect == null) return;
+		}
 		if (_pg != null) {
 			wid = _pg.width;
 			hgt = _pg.height;
-			_pg.loadPixels();
+			if (!onlyDirty) _pg.loadPixels();
 			thesePixels = _pg.pixels;
 		} else {
 			wid = theSketch.width;
 			hgt = theSketch.height;
-			theSketch.loadPixels();
+			if (!onlyDirty) theSketch.loadPixels();
 			thesePixels = theSketch.pixels;
 		}
-		for (int y=0; y<h; y++) {
-			int py = y+_dy;
-			if ((py < 0) || (py >= hgt)) continue;
-			for (int x=0; x<w; x++) {
-				int px = x+_dx;
-				if ((px < 0) || (px >= wid)) continue;
-				int index = (py*wid)+px;
-				int pixelColor = thesePixels[index];
-				
-				float fieldRed = fields[0].z[py][px];
-				float fieldGreen = fields[1].z[py][px];
-				float fieldBlue = fields[2].z[py][px];
-				float fieldAlpha = 1;
-
-				if (thisMask != null) {
-					int maskX = x + _mx;
-					int maskY = y + _my;
-					if ((maskX >= 0) && (maskX < thisMask.w) && (maskY >= 0) && (maskY < thisMask.h)) {
-						fieldAlpha = thisMask.z[maskY][maskX] / 255.f;
-					}
-				}
-				
-				float pixelRed = (pixelColor >> 16) & 0xFF; 
-				float pixelGreen = (pixelColor >> 8) & 0xFF; 
-				float pixelBlue = pixelColor & 0xFF; 
-				float pixelAlpha = ((pixelColor >> 24) & 0xFF) / 255.f; 
-				
-				float blendF = fieldAlpha;
-				float blendP = 1.f;
-				if (_pg != null) {   // the screen is always opaque, but PGraphics might not be
-					blendF = fieldAlpha;
-					blendP = pixelAlpha; // * (1.f - fieldAlpha); <- Alvy's scale factor not needed any more
-				}
-				
-				float blendRed = 0;
-				float blendGreen = 0;
-				float blendBlue = 0;
-				
-				// use my blending algorithm to support when blendP != 1
-				float blendAlpha = blendP + ((1.f - blendP) * blendF);
-				if (blendAlpha != 0) {
-					float kappa = 1.f - blendF;
-					float k2 = 1.f - kappa;
-					blendRed   = ((fieldRed * k2) + (pixelRed * kappa))/blendAlpha;
-					blendGreen = ((fieldGreen * k2) + (pixelGreen * kappa))/blendAlpha;
-					blendBlue  = ((fieldBlue * k2) + (pixelBlue * kappa))/blendAlpha;
-				}
-				int ired = Math.round(blendRed);
-				int igrn = Math.round(blendGreen);
-				int iblu = Math.round(blendBlue);
-				int ialf = Math.round(255.f * blendAlpha); 
-				
-				int newColor = ((ialf & 0xFF) << 24) | ((ired & 0xFF) << 16) | ((igrn & 0xFF) << 8) | (iblu & 0xFF);
-								
-				thesePixels[index] = newColor;
+		// Each field row lands on its own pixel row, so bands of rows can run at once.
+		// loadPixels() and updatePixels() stay out here on this thread.
+		final int rx0 = rect[0];
+		final int rx1 = rect[0]+rect[2];
+		final int ry0 = rect[1];
+		final int pixWid = wid;
+		final int pixHgt = hgt;
+		final int[] pix = thesePixels;
+		final AUField mask = thisMask;
+		final boolean toPG = (_pg != null);
+		final int dx = _dx;
+		final int dy = _dy;
+		final int mx = _mx;
+		final int my = _my;
+		AUParallel.forRows(rect[3], rect[2], (b0, b1) -> {
+			for (int y=ry0+b0; y<ry0+b1; y++) {
+				int py = y+dy;
+				if ((py < 0) || (py >= pixHgt)) continue;
+				// the part of the row that lands on the pixels
+				int x0 = Math.max(rx0, -dx);
+				int x1 = Math.min(rx1, pixWid-dx);
+				if (x0 >= x1) continue;
+				AUPixels.rgbRow(fields[0], fields[1], fields[2], x0, y, mask, x0+mx, y+my,
+				                pix, (py*pixWid)+x0+dx, x1-x0, toPG);
 			}
-		}
+		});
 		if (_pg != null) {
 			_pg.updatePixels();
 		} else {
 			theSketch.updatePixels();
 		}
+		// a masked write blends into the pixels, so they no longer match the fields
+		lastTarget = (thisMask == null) ? target : null;
+		lastDx = _dx;
+		lastDy = _dy;
+		clearDirty();
 	}
 	
 	
@@ -0,0 +1,99 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*************************************************
+* PARALLEL
+* Splits bulk field work into bands of rows and runs
+* them on a ForkJoinPool. Every band does exactly the
+* work the single-threaded loop would have done on
+* those rows, so the results are identical either way.
+*************************************************/
+
+public class AUParallel {
+
+	static boolean enabled = false;
+	static ForkJoinPool pool = null;      // null means use the common pool
+	static int threshold = 65536;         // fields with fewer values than this stay on one thread
+	static int bandsPerThread = 4;        // a few bands per thread evens out uneven rows
+
+	// the work for rows [y0, y1). Bands never overlap.
+	public interface RowTask {
+		void run(int _y0, int _y1);
+	}
+
+	public static void setEnabled(boolean _enabled)   { enabled = _enabled; }
+	public static boolean isEnabled()                 { return enabled; }
+	public static void setPool(ForkJoinPool _pool)    { pool = _pool; }
+	public static void setThreshold(int _threshold)   { threshold = Math.max(0, _threshold); }
+	public static int getThreshold()                  { return threshold; }
+
+	public static ForkJoinPool getPool() {
+		if (pool == null) return ForkJoinPool.commonPool();
+		return pool;
+	}
+
+	// Run the task over rows [0, h) of something w values wide. Small jobs,
+	// or everything when we're not enabled, run right here on the calling thread.
+	public static void forRows(int _h, int _w, RowTask _task) {
+		if ((!enabled) || (_h < 2) || (((long)_h * _w) < threshold)) {
+			_task.run(0, _h);
+			return;
+		}
+		ForkJoinPool thisPool = getPool();
+		int numBands = Math.max(1, Math.min(_h, thisPool.getParallelism() * bandsPerThread));
+		int grain = (_h + numBands - 1) / numBands;
+		thisPool.invoke(new RowBand(_task, 0, _h, grain));
+	}
+
+	static class RowBand extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		RowTask task;
+		int y0, y1, grain;
+
+		RowBand(RowTask _task, int _y0, int _y1, int _grain) {
+			task = _task;
+			y0 = _y0;
+			y1 = _y1;
+			grain = _grain;
+		}
+
+		protected void compute() {
+			if (y1 - y0 <= grain) {
+				task.run(y0, y1);
+				return;
+			}
+			int mid = (y0 + y1) >>> 1;
+			invokeAll(new RowBand(task, y0, mid, grain), new RowBand(task, mid, y1, grain));
+		}
+	}
+}
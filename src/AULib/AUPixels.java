@@ -0,0 +1,276 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+/*************************************************
+* PIXELS
+* Moving rows of values between fields and pixels.
+* Each call picks the loop for its case up front
+* (which value to read, mask or no mask, screen or
+* PGraphics), so the loops themselves don't branch.
+* The tables hold exactly what the arithmetic they
+* replace would compute, so the pixels come out the same.
+*************************************************/
+
+class AUPixels {
+
+	static final int WRITE_OPAQUE = 0;      // the field replaces the pixels
+	static final int WRITE_MASKED = 1;      // blend over the screen, which is always opaque
+	static final int WRITE_MASKED_PG = 2;   // blend over a PGraphics, which might not be
+
+	static final float[] LUM_R = weights(.3f);     // r -> .3*r
+	static final float[] LUM_G = weights(.59f);
+	static final float[] LUM_B = weights(.11f);
+	static final float[] AVG3 = thirds();         // r+g+b -> (r+g+b)/3
+	static final float[] UNIT = unit();           // a -> a/255
+
+	static float[] weights(float _w) {
+		float[] t = new float[256];
+		for (int i=0; i<256; i++) t[i] = _w * i;
+		return t;
+	}
+
+	static float[] thirds() {
+		float[] t = new float[766];
+		for (int i=0; i<766; i++) t[i] = i/3.f;
+		return t;
+	}
+
+	static float[] unit() {
+		float[] t = new float[256];
+		for (int i=0; i<256; i++) t[i] = i/255.f;
+		return t;
+	}
+
+	/**********************
+	 * Pixels to fields
+	 *********************/
+
+	// _n pixels from _pix[_p] on, into _d[_i], _d[_i+_ds], ... using one of AUField's FIELD_ types
+	static void toRow(int[] _pix, int _p, float[] _d, int _i, int _ds, int _n, int _valueType) {
+		int end = _p + _n;
+		switch (_valueType) {
+			case AUField.FIELD_RED:
+				for (; _p<end; _p++, _i+=_ds) _d[_i] = (_pix[_p]>>16) & 0xFF;
+				break;
+			case AUField.FIELD_GREEN:
+				for (; _p<end; _p++, _i+=_ds) _d[_i] = (_pix[_p]>>8) & 0xFF;
+				break;
+			case AUField.FIELD_BLUE:
+				for (; _p<end; _p++, _i+=_ds) _d[_i] = _pix[_p] & 0xFF;
+				break;
+			case AUField.FIELD_LUM:
+				for (; _p<end; _p++, _i+=_ds) {
+					int c = _pix[_p];
+					_d[_i] = LUM_R[(c>>16) & 0xFF] + LUM_G[(c>>8) & 0xFF] + LUM_B[c & 0xFF];
+				}
+				break;
+			default:
+			case AUField.FIELD_AVG_RGB:
+				for (; _p<end; _p++, _i+=_ds) {
+					int c = _pix[_p];
+					_d[_i] = AVG3[((c>>16) & 0xFF) + ((c>>8) & 0xFF) + (c & 0xFF)];
+				}
+				break;
+		}
+	}
+
+	/**********************
+	 * Fields to pixels
+	 *********************/
+
+	// A run of _n pixels starting at mask point (_maskX, _maskY) is on the mask for
+	// pixels [coverStart, coverEnd). Off the mask, alpha is 1, and blending with alpha 1
+	// gives just what the opaque loop writes (even for a PGraphics: pa + (1-pa) is
+	// exactly 1 for every a/255), so we use that.
+	static int coverStart(AUField _mask, int _maskX, int _maskY, int _n) {
+		if ((_maskY < 0) || (_maskY >= _mask.h)) return 0;
+		return Math.max(0, Math.min(_n, -_maskX));
+	}
+
+	static int coverEnd(AUField _mask, int _maskX, int _maskY, int _n, int _start) {
+		if ((_maskY < 0) || (_maskY >= _mask.h)) return 0;
+		return Math.max(_start, Math.min(_n, _mask.w - _maskX));
+	}
+
+	// One row of a gray field into _n pixels from _pix[_p] on. _mask may be null.
+	static void grayRow(float[] _d, int _i, int _ds, AUField _mask, int _maskX, int _maskY,
+	                    int[] _pix, int _p, int _n, boolean _toPG) {
+		if (_mask == null) {
+			grayRun(_d, _i, _ds, null, 0, 0, _pix, _p, _n, WRITE_OPAQUE);
+			return;
+		}
+		int a = coverStart(_mask, _maskX, _maskY, _n);
+		int b = coverEnd(_mask, _maskX, _maskY, _n, a);
+		grayRun(_d, _i, _ds, null, 0, 0, _pix, _p, a, WRITE_OPAQUE);
+		if (b > a) {
+			grayRun(_d, _i+(a*_ds), _ds, _mask.data, _mask.index(_maskX+a, _maskY), _mask.step,
+			        _pix, _p+a, b-a, _toPG ? WRITE_MASKED_PG : WRITE_MASKED);
+		}
+		grayRun(_d, _i+(b*_ds), _ds, null, 0, 0, _pix, _p+b, _n-b, WRITE_OPAQUE);
+	}
+
+	static void grayRun(float[] _d, int _i, int _ds, float[] _m, int _mi, int _ms,
+	                    int[] _pix, int _p, int _n, int _mode) {
+		int end = _p + _n;
+		switch (_mode) {
+			case WRITE_OPAQUE:
+				for (; _p<end; _p++, _i+=_ds) {
+					int g = Math.round(_d[_i]) & 0xFF;
+					_pix[_p] = 0xFF000000 | (g << 16) | (g << 8) | g;
+				}
+				break;
+			case WRITE_MASKED:
+				for (; _p<end; _p++, _i+=_ds, _mi+=_ms) {
+					_pix[_p] = blendGray(Math.round(_d[_i]), _m[_mi]/255.f, _pix[_p], 1.f);
+				}
+				break;
+			case WRITE_MASKED_PG:
+				for (; _p<end; _p++, _i+=_ds, _mi+=_ms) {
+					int c = _pix[_p];
+					_pix[_p] = blendGray(Math.round(_d[_i]), _m[_mi]/255.f, c, UNIT[c >>> 24]);
+				}
+				break;
+		}
+	}
+
+	// gray level fieldGray laid over pixelColor with opacity fieldAlpha. blendP is
+	// the pixel's own opacity: 1 for the screen, its alpha for a PGraphics.
+	static int blendGray(int fieldGray, float fieldAlpha, int pixelColor, float blendP) {
+		float blendF = fieldAlpha;
+		// use my blending algorithm to support when blendP != 1
+		float blendAlpha = blendP + ((1.f - blendP) * blendF);
+		if (blendAlpha == 0) return 0;
+		float kappa = 1.f - blendF;
+		float k2 = 1.f - kappa;
+		float blendRed   = ((fieldGray * k2) + (((pixelColor >> 16) & 0xFF) * kappa))/blendAlpha;
+		float blendGreen = ((fieldGray * k2) + (((pixelColor >> 8) & 0xFF) * kappa))/blendAlpha;
+		float blendBlue  = ((fieldGray * k2) + ((pixelColor & 0xFF) * kappa))/blendAlpha;
+		int ired = Math.round(blendRed);
+		int igrn = Math.round(blendGreen);
+		int iblu = Math.round(blendBlue);
+		int ialf = Math.round(255.f * blendAlpha);
+		return ((ialf & 0xFF) << 24) | ((ired & 0xFF) << 16) | ((igrn & 0xFF) << 8) | (iblu & 0xFF);
+	}
+
+	// One row of three fields, starting at their point (_x, _y), into _n pixels from _pix[_p] on.
+	static void rgbRow(AUField _r, AUField _g, AUField _b, int _x, int _y, AUField _mask, int _maskX, int _maskY,
+	                   int[] _pix, int _p, int _n, boolean _toPG) {
+		if (_mask == null) {
+			rgbRun(_r, _g, _b, _x, _y, null, 0, _pix, _p, _n, WRITE_OPAQUE);
+			return;
+		}
+		int a = coverStart(_mask, _maskX, _maskY, _n);
+		int b = coverEnd(_mask, _maskX, _maskY, _n, a);
+		rgbRun(_r, _g, _b, _x, _y, null, 0, _pix, _p, a, WRITE_OPAQUE);
+		if (b > a) {
+			rgbRun(_r, _g, _b, _x+a, _y, _mask, _mask.index(_maskX+a, _maskY), _pix, _p+a, b-a,
+			       _toPG ? WRITE_MASKED_PG : WRITE_MASKED);
+		}
+		rgbRun(_r, _g, _b, _x+b, _y, null, 0, _pix, _p+b, _n-b, WRITE_OPAQUE);
+	}
+
+	static void rgbRun(AUField _r, AUField _g, AUField _b, int _x, int _y, AUField _mask, int _mi,
+	                   int[] _pix, int _p, int _n, int _mode) {
+		float[] rd = _r.data;
+		float[] gd = _g.data;
+		float[] bd = _b.data;
+		int rs = _r.step;
+		int gs = _g.step;
+		int bs = _b.step;
+		int ri = _r.index(_x, _y);
+		int gi = _g.index(_x, _y);
+		int bi = _b.index(_x, _y);
+		int end = _p + _n;
+		switch (_mode) {
+			case WRITE_OPAQUE:
+				for (; _p<end; _p++, ri+=rs, gi+=gs, bi+=bs) {
+					_pix[_p] = 0xFF000000 | ((Math.round(rd[ri]) & 0xFF) << 16) | ((Math.round(gd[gi]) & 0xFF) << 8) | (Math.round(bd[bi]) & 0xFF);
+				}
+				break;
+			case WRITE_MASKED: {
+				float[] m = _mask.data;
+				int ms = _mask.step;
+				for (; _p<end; _p++, ri+=rs, gi+=gs, bi+=bs, _mi+=ms) {
+					_pix[_p] = blendRGB(rd[ri], gd[gi], bd[bi], m[_mi]/255.f, _pix[_p], 1.f);
+				}
+				break;
+			}
+			case WRITE_MASKED_PG: {
+				float[] m = _mask.data;
+				int ms = _mask.step;
+				for (; _p<end; _p++, ri+=rs, gi+=gs, bi+=bs, _mi+=ms) {
+					int c = _pix[_p];
+					_pix[_p] = blendRGB(rd[ri], gd[gi], bd[bi], m[_mi]/255.f, c, UNIT[c >>> 24]);
+				}
+				break;
+			}
+		}
+	}
+
+	// like blendGray(), but for a color that hasn't been rounded yet
+	static int blendRGB(float fieldRed, float fieldGreen, float fieldBlue, float fieldAlpha, int pixelColor, float blendP) {
+		float blendF = fieldAlpha;
+		float blendAlpha = blendP + ((1.f - blendP) * blendF);
+		if (blendAlpha == 0) return 0;
+		float kappa = 1.f - blendF;
+		float k2 = 1.f - kappa;
+		float blendRed   = ((fieldRed * k2) + (((pixelColor >> 16) & 0xFF) * kappa))/blendAlpha;
+		float blendGreen = ((fieldGreen * k2) + (((pixelColor >> 8) & 0xFF) * kappa))/blendAlpha;
+		float blendBlue  = ((fieldBlue * k2) + ((pixelColor & 0xFF) * kappa))/blendAlpha;
+		int ired = Math.round(blendRed);
+		int igrn = Math.round(blendGreen);
+		int iblu = Math.round(blendBlue);
+		int ialf = Math.round(255.f * blendAlpha);
+		return ((ialf & 0xFF) << 24) | ((ired & 0xFF) << 16) | ((igrn & 0xFF) << 8) | (iblu & 0xFF);
+	}
+
+	/**********************
+	 * Fields to bytes
+	 *********************/
+
+	// One row of three fields, from column 0 of row _y, into _n RGB triples from
+	// _dst[_d] on. The bytes are what the opaque loop above would put in the pixels.
+	static void rgbBytesRow(AUField _r, AUField _g, AUField _b, int _y, byte[] _dst, int _d, int _n) {
+		float[] rd = _r.data;
+		float[] gd = _g.data;
+		float[] bd = _b.data;
+		int rs = _r.step;
+		int gs = _g.step;
+		int bs = _b.step;
+		int ri = _r.index(0, _y);
+		int gi = _g.index(0, _y);
+		int bi = _b.index(0, _y);
+		int end = _d + (3*_n);
+		for (; _d<end; _d+=3, ri+=rs, gi+=gs, bi+=bs) {
+			_dst[_d]   = (byte)Math.round(rd[ri]);
+			_dst[_d+1] = (byte)Math.round(gd[gi]);
+			_dst[_d+2] = (byte)Math.round(bd[bi]);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+/*************************************************
+* REDUCE
+* Min/max over one or more same-sized fields in a single
+* pass, and the matching remap. setRange() used to scan,
+* then call jmap() on every value, which re-tested s0 != s1
+* and re-divided each time. Now we work out one scale per
+* field and each value costs a subtract, a multiply, and an
+* add. Subtracting s0 first keeps values far from zero as
+* accurate as jmap() left them.
+*************************************************/
+
+class AUReduce {
+
+	// Returns { min, max } for each of the first _numFields fields, all in one pass
+	// over the rows. Each row records its own extremes and we combine them in row
+	// order, so the answer is the same however the rows were split between threads.
+	static float[][] minMax(final AUField[] _fields, final int _numFields) {
+		final int h = _fields[0].h;
+		final int w = _fields[0].w;
+		final float[] rowMM = new float[_numFields * h * 2];
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w * _numFields, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				for (int f=0; f<_numFields; f++) {
+					AUField fld = _fields[f];
+					k.minMax(fld.data, fld.index(0, y), fld.step, w, rowMM, ((f*h)+y)*2);
+				}
+			}
+		});
+		float[][] mm = new float[_numFields][2];
+		for (int f=0; f<_numFields; f++) {
+			int o = f*h*2;
+			float fmin = rowMM[o];
+			float fmax = rowMM[o+1];
+			for (int y=1; y<h; y++) {
+				fmin = Math.min(fmin, rowMM[o+(y*2)]);
+				fmax = Math.max(fmax, rowMM[o+(y*2)+1]);
+			}
+			mm[f][0] = fmin;
+			mm[f][1] = fmax;
+		}
+		return mm;
+	}
+
+	// the extremes over all the fields together
+	static float[] combine(float[][] _mm) {
+		float[] r = { _mm[0][0], _mm[0][1] };
+		for (int f=1; f<_mm.length; f++) {
+			r[0] = Math.min(r[0], _mm[f][0]);
+			r[1] = Math.max(r[1], _mm[f][1]);
+		}
+		return r;
+	}
+
+	// The scale taking [s0, s1] to [e0, e1], as v = ((v-s0)*scale) + e0.
+	// Like jmap(), if s0 == s1 everything goes to e0.
+	static float scale(float _s0, float _s1, float _e0, float _e1) {
+		if (_s0 == _s1) return 0;
+		return (_e1-_e0)/(_s1-_s0);
+	}
+
+	// v = ((v-from[f])*scale[f]) + to[f] for each of the first _numFields fields, in one pass
+	static void remap(final AUField[] _fields, final int _numFields, final float[] _from, final float[] _scale, final float[] _to) {
+		final int h = _fields[0].h;
+		final int w = _fields[0].w;
+		final AUKernels k = AUKernels.active;
+		for (int f=0; f<_numFields; f++) _fields[f].markAllDirty();
+		AUParallel.forRows(h, w * _numFields, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				for (int f=0; f<_numFields; f++) {
+					AUField fld = _fields[f];
+					k.affine(fld.data, fld.index(0, y), fld.step, w, _from[f], _scale[f], _to[f]);
+				}
+			}
+		});
+	}
+}
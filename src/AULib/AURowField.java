@@ -0,0 +1,362 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+
+import processing.core.*;
+
+/*************************************************
+* ROW FIELDS
+* The common part of fields that don't keep their values
+* in a float[] (AUCompactField, AUBufferField). A subclass
+* only has to move one row at a time between its storage
+* and a float[]. Everything else here is built on that,
+* with many of AUField's methods and the same results.
+*
+* These are not AUFields. They can't be layers of an
+* AUMultiField, a mask, or used by AUCamera directly;
+* copy them into an AUField with toField() for that, and
+* back with fromField(). AUMultiField.toCompact() makes
+* snapshots with them, and AUCamera.setCompactMasks()
+* keeps its shutter masks in them.
+*************************************************/
+
+public abstract class AURowField {
+
+	// theSketch is a reference to the parent sketch
+	PApplet theSketch;
+
+	public int w, h;
+
+	AURowField(PApplet _theSketch, int _wid, int _hgt) {
+		theSketch = _theSketch;
+		w = Math.max(1, _wid);
+		h = Math.max(1, _hgt);
+	}
+
+	public abstract float get(int _x, int _y);
+	public abstract void set(int _x, int _y, float _v);
+
+	// copy row _y into _dst[0..w), and back again. Different rows may be
+	// read and written from different threads at the same time.
+	abstract void getRow(int _y, float[] _dst);
+	abstract void setRow(int _y, float[] _src);
+
+	/**********************
+	 * Conversion
+	 *********************/
+
+	public float[][] getZ() {
+		float[][] z = new float[h][w];
+		for (int y=0; y<h; y++) getRow(y, z[y]);
+		return z;
+	}
+
+	// Every row is checked before any are written, so a bad array leaves the field alone.
+	public void setZ(float[][] _z) {
+		if ((_z == null) || (_z.length < h)) {
+			AULib.reportError("AURowField", "setZ", "the array is missing or has fewer than h rows", "h="+h);
+			return;
+		}
+		for (int y=0; y<h; y++) {
+			if ((_z[y] == null) || (_z[y].length < w)) {
+				AULib.reportError("AURowField", "setZ", "row "+y+" is missing or has fewer than w entries", "w="+w);
+				return;
+			}
+		}
+		for (int y=0; y<h; y++) setRow(y, _z[y]);
+	}
+
+	// a copy in an ordinary AUField
+	public AUField toField() {
+		AUField f = new AUField(theSketch, w, h);
+		toField(f);
+		return f;
+	}
+
+	public void toField(final AUField _dst) {
+		if (!sameSize(_dst, "toField")) return;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			for (int y=y0; y<y1; y++) {
+				getRow(y, row);
+				_dst.setRow(y, row);
+			}
+		});
+	}
+
+	public void fromField(final AUField _src) {
+		if (!sameSize(_src, "fromField")) return;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			for (int y=y0; y<y1; y++) {
+				_src.getRow(y, row);
+				setRow(y, row);
+			}
+		});
+	}
+
+	/**********************
+	 * Bulk operations
+	 *********************/
+
+	// what to do to one row
+	interface RowOp {
+		void run(float[] _row, int _y);
+	}
+
+	// read each row, run _op on it, and write the result back
+	void eachRow(final RowOp _op) {
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			for (int y=y0; y<y1; y++) {
+				getRow(y, row);
+				_op.run(row, y);
+				setRow(y, row);
+			}
+		});
+	}
+
+	boolean sameSize(AURowField _f, String _func) {
+		if ((_f.w != w) || (_f.h != h)) {
+			AULib.reportError("AURowField", _func, "the two fields do not have the same size", "");
+			return false;
+		}
+		return true;
+	}
+
+	boolean sameSize(AUField _f, String _func) {
+		if ((_f.w != w) || (_f.h != h)) {
+			AULib.reportError("AURowField", _func, "the two fields do not have the same size", "");
+			return false;
+		}
+		return true;
+	}
+
+	public void flatten(final float _v) {
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			java.util.Arrays.fill(row, _v);
+			for (int y=y0; y<y1; y++) setRow(y, row);
+		});
+	}
+
+	// returns { min, max } over the whole field
+	public float[] getRange() {
+		final float[] rowMM = new float[h*2];
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			for (int y=y0; y<y1; y++) {
+				getRow(y, row);
+				k.minMax(row, 0, 1, w, rowMM, y*2);
+			}
+		});
+		float[] mm = { rowMM[0], rowMM[1] };
+		for (int y=1; y<h; y++) {
+			mm[0] = Math.min(mm[0], rowMM[y*2]);
+			mm[1] = Math.max(mm[1], rowMM[(y*2)+1]);
+		}
+		return mm;
+	}
+
+	public void setRange(float _zmin, float _zmax) {
+		float[] mm = getRange();
+		setRange(_zmin, _zmax, mm[0], mm[1]);
+	}
+
+	public void setRange(float _zmin, float _zmax, float _fromMin, float _fromMax) {
+		final float scl = AUReduce.scale(_fromMin, _fromMax, _zmin, _zmax);
+		final AUKernels k = AUKernels.active;
+		eachRow((row, y) -> k.affine(row, 0, 1, w, _fromMin, scl, _zmin));
+	}
+
+	public void normalize() {
+		setRange(0, 1);
+	}
+
+	public void normalize(float _fromMin, float _fromMax) {
+		setRange(0, 1, _fromMin, _fromMax);
+	}
+
+	public void add(final float _a) {
+		final AUKernels k = AUKernels.active;
+		eachRow((row, y) -> k.add(row, 0, 1, w, _a));
+	}
+
+	public void mul(final float _a) {
+		final AUKernels k = AUKernels.active;
+		eachRow((row, y) -> k.mul(row, 0, 1, w, _a));
+	}
+
+	public void add(final AUField _f) {
+		if (!sameSize(_f, "add")) return;
+		final AUKernels k = AUKernels.active;
+		eachRow((row, y) -> k.add(row, 0, 1, _f.data, _f.index(0, y), _f.step, w));
+	}
+
+	public void mul(final AUField _f) {
+		if (!sameSize(_f, "mul")) return;
+		final AUKernels k = AUKernels.active;
+		eachRow((row, y) -> k.mul(row, 0, 1, _f.data, _f.index(0, y), _f.step, w));
+	}
+
+	public void add(final AURowField _f) {
+		if (!sameSize(_f, "add")) return;
+		addOrMul(_f, true);
+	}
+
+	public void mul(final AURowField _f) {
+		if (!sameSize(_f, "mul")) return;
+		addOrMul(_f, false);
+	}
+
+	void addOrMul(final AURowField _f, final boolean _add) {
+		final AUKernels k = AUKernels.active;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			float[] src = new float[w];
+			for (int y=y0; y<y1; y++) {
+				getRow(y, row);
+				_f.getRow(y, src);
+				if (_add) {
+					k.add(row, 0, 1, src, 0, 1, w);
+				} else {
+					k.mul(row, 0, 1, src, 0, 1, w);
+				}
+				setRow(y, row);
+			}
+		});
+	}
+
+	public void copy(final AURowField _dst) {
+		if (!sameSize(_dst, "copy")) return;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			for (int y=y0; y<y1; y++) {
+				getRow(y, row);
+				_dst.setRow(y, row);
+			}
+		});
+	}
+
+	/**********************
+	 * Pixels
+	 *********************/
+
+	void loadFromPixels(final int _valueType, PGraphics _pg) {
+		int wid = 0;
+		int hgt = 0;
+		int[] thesePixels;
+		if (_pg != null) {
+			_pg.loadPixels();
+			wid = _pg.width;
+			hgt = _pg.height;
+			thesePixels = _pg.pixels;
+		} else {
+			theSketch.loadPixels();
+			wid = theSketch.width;
+			hgt = theSketch.height;
+			thesePixels = theSketch.pixels;
+		}
+		final int pixWid = wid;
+		final int rowLen = Math.min(w, wid);
+		AUParallel.forRows(Math.min(h, hgt), rowLen, (y0, y1) -> {
+			float[] row = new float[w];
+			for (int y=y0; y<y1; y++) {
+				// keep whatever's past the right edge of the pixels
+				if (rowLen < w) getRow(y, row);
+				AUPixels.toRow(thesePixels, y*pixWid, row, 0, 1, rowLen, _valueType);
+				setRow(y, row);
+			}
+		});
+	}
+
+	public void fromPixels(int _valueType) {
+		loadFromPixels(_valueType, null);
+	}
+
+	public void fromPixels(int _valueType, PGraphics _pg) {
+		loadFromPixels(_valueType, _pg);
+	}
+
+	void writeToPixels(final int _dx, final int _dy, final AUField _mask, final int _mx, final int _my, final PGraphics _pg) {
+		int[] pix;
+		if (_pg != null) {
+			_pg.loadPixels();
+			pix = _pg.pixels;
+		} else {
+			theSketch.loadPixels();
+			pix = theSketch.pixels;
+		}
+		final int[] thesePixels = pix;
+		final int wid = (_pg != null) ? _pg.width : theSketch.width;
+		final int hgt = (_pg != null) ? _pg.height : theSketch.height;
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			float[] row = new float[w];
+			for (int y=y0; y<y1; y++) {
+				int py = y+_dy;
+				if ((py < 0) || (py >= hgt)) continue;
+				int x0 = Math.max(0, -_dx);
+				int x1 = Math.min(w, wid-_dx);
+				if (x0 >= x1) continue;
+				getRow(y, row);
+				AUPixels.grayRow(row, x0, 1, _mask, x0+_mx, y+_my, thesePixels, (py*wid)+x0+_dx, x1-x0, _pg != null);
+			}
+		});
+		if (_pg != null) {
+			_pg.updatePixels();
+		} else {
+			theSketch.updatePixels();
+		}
+	}
+
+	public void toPixels(float _dx, float _dy) {
+		writeToPixels(Math.round(_dx), Math.round(_dy), null, Math.round(_dx), Math.round(_dy), null);
+	}
+
+	public void toPixels(float _dx, float _dy, AUField _mask) {
+		writeToPixels(Math.round(_dx), Math.round(_dy), _mask, Math.round(_dx), Math.round(_dy), null);
+	}
+
+	public void toPixels(float _dx, float _dy, AUField _mask, float _mx, float _my) {
+		writeToPixels(Math.round(_dx), Math.round(_dy), _mask, Math.round(_mx), Math.round(_my), null);
+	}
+
+	public void toPixels(float _dx, float _dy, PGraphics _pg) {
+		writeToPixels(Math.round(_dx), Math.round(_dy), null, Math.round(_dx), Math.round(_dy), _pg);
+	}
+
+	public void toPixels(float _dx, float _dy, AUField _mask, PGraphics _pg) {
+		writeToPixels(Math.round(_dx), Math.round(_dy), _mask, Math.round(_dx), Math.round(_dy), _pg);
+	}
+
+	public void toPixels(float _dx, float _dy, AUField _mask, float _mx, float _my, PGraphics _pg) {
+		writeToPixels(Math.round(_dx), Math.round(_dy), _mask, Math.round(_mx), Math.round(_my), _pg);
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+
+package AULib;
+
+/*************************************************
+* SHUTTER SHAPE
+* A shutter you describe yourself, for AUCamera's
+* SHUTTER_CUSTOM. open() says how open the shutter is
+* at one pixel, from 0 (closed) to 1 (open), when the
+* exposure value is _v. The value goes from 0 up to 1
+* as the shutter opens, stays there, then goes back
+* down to 0 as it closes.
+*
+*   camera.setShutterShape(new AUShutterShape() {
+*     public float open(int x, int y, int w, int h, float v) {
+*       return (x < w*v) ? 1 : 0;   // same as SHUTTER_BLADE_RIGHT
+*     }
+*   });
+*
+* The camera keeps the masks it makes, one for each
+* value of _v, so open() should give the same answer
+* every time it's asked the same question. It may be
+* called from several threads at once.
+*************************************************/
+
+public interface AUShutterShape {
+
+	// (_x, _y) is a pixel in a _w by _h image
+	float open(int _x, int _y, int _w, int _h, float _v);
+}
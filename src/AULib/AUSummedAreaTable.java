@@ -0,0 +1,174 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+package AULib;
+
+/*************************************************
+* SUMMED-AREA TABLE
+* Also called an integral image. Built once from a field,
+* it gives the sum, mean, or variance of the values in any
+* rectangle with just four lookups, however big it is.
+*
+*   AUSummedAreaTable sat = new AUSummedAreaTable(density);
+*   float m = sat.mean(x, y, 20, 10);
+*
+* Entry (x, y) holds the sum of everything above and to the
+* left of field point (x, y). The table has an extra row and
+* column of zeros on the top and left, so no query needs a
+* special case. Sums are doubles, because adding up millions
+* of floats in float would lose the small ones.
+*
+* The table is a snapshot: if the field changes, call
+* build() again.
+*************************************************/
+
+public class AUSummedAreaTable {
+
+	public int w, h;           // the size of the field, one less than the table each way
+	double[] sum;              // (w+1) by (h+1)
+	double[] sumSq;            // the same for squared values; null if we skipped it
+
+	public AUSummedAreaTable(AUField _f) {
+		this(_f, true);
+	}
+
+	// Pass false for _withVariance to save half the memory if you won't call variance().
+	public AUSummedAreaTable(AUField _f, boolean _withVariance) {
+		build(_f, _withVariance);
+	}
+
+	/**********************
+	 * Building
+	 *********************/
+
+	public void build(AUField _f) {
+		build(_f, sumSq != null);
+	}
+
+	// Runs across each row on its own, then down each column, both in parallel bands.
+	// Reuses the arrays when the size hasn't changed.
+	public void build(final AUField _f, boolean _withVariance) {
+		w = _f.w;
+		h = _f.h;
+		final int tw = w+1;
+		int len = tw * (h+1);
+		if ((sum == null) || (sum.length != len)) sum = new double[len];
+		if (!_withVariance) {
+			sumSq = null;
+		} else if ((sumSq == null) || (sumSq.length != len)) {
+			sumSq = new double[len];
+		}
+		final double[] s = sum;
+		final double[] sq = sumSq;
+		// the top row stays zero, and each row starts with a zero
+		java.util.Arrays.fill(s, 0, tw, 0);
+		if (sq != null) java.util.Arrays.fill(sq, 0, tw, 0);
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			for (int y=y0; y<y1; y++) {
+				int o = (y+1)*tw;
+				int i = _f.index(0, y);
+				double rs = 0;
+				double rq = 0;
+				s[o] = 0;
+				if (sq != null) sq[o] = 0;
+				for (int x=1; x<=w; x++, i+=_f.step) {
+					double v = _f.data[i];
+					rs += v;
+					s[o+x] = rs;
+					if (sq != null) {
+						rq += v*v;
+						sq[o+x] = rq;
+					}
+				}
+			}
+		});
+		// now add down the columns; each band takes some columns, working a row at a time
+		AUParallel.forRows(tw, h, (x0, x1) -> {
+			for (int y=2; y<=h; y++) {
+				int o = y*tw;
+				int p = o - tw;
+				for (int x=x0; x<x1; x++) s[o+x] += s[p+x];
+				if (sq != null) {
+					for (int x=x0; x<x1; x++) sq[o+x] += sq[p+x];
+				}
+			}
+		});
+	}
+
+	/**********************
+	 * Queries
+	 *********************/
+
+	// The rectangle starts at (_x, _y) and is _w by _h. Whatever part of it
+	// is outside the field is ignored.
+	public double sum(int _x, int _y, int _w, int _h) {
+		return rectSum(sum, _x, _y, _w, _h);
+	}
+
+	// the average over the part of the rectangle inside the field (0 if none of it is)
+	public float mean(int _x, int _y, int _w, int _h) {
+		int n = area(_x, _y, _w, _h);
+		if (n == 0) return 0;
+		return (float)(rectSum(sum, _x, _y, _w, _h) / n);
+	}
+
+	public float variance(int _x, int _y, int _w, int _h) {
+		if (sumSq == null) {
+			AULib.reportError("AUSummedAreaTable", "variance", "this table was built without variance", "");
+			return 0;
+		}
+		int n = area(_x, _y, _w, _h);
+		if (n == 0) return 0;
+		double m = rectSum(sum, _x, _y, _w, _h) / n;
+		double v = (rectSum(sumSq, _x, _y, _w, _h) / n) - (m*m);
+		return (float)Math.max(0, v);   // rounding can push a flat region just below zero
+	}
+
+	public float stdDev(int _x, int _y, int _w, int _h) {
+		return (float)Math.sqrt(variance(_x, _y, _w, _h));
+	}
+
+	// the number of field points in the rectangle
+	public int area(int _x, int _y, int _w, int _h) {
+		int x0 = Math.max(0, _x);
+		int y0 = Math.max(0, _y);
+		int x1 = Math.min(w, _x+_w);
+		int y1 = Math.min(h, _y+_h);
+		if ((x0 >= x1) || (y0 >= y1)) return 0;
+		return (x1-x0) * (y1-y0);
+	}
+
+	double rectSum(double[] _t, int _x, int _y, int _w, int _h) {
+		int x0 = Math.max(0, _x);
+		int y0 = Math.max(0, _y);
+		int x1 = Math.min(w, _x+_w);
+		int y1 = Math.min(h, _y+_h);
+		if ((x0 >= x1) || (y0 >= y1)) return 0;
+		int tw = w+1;
+		return _t[(y1*tw)+x1] - _t[(y0*tw)+x1] - _t[(y1*tw)+x0] + _t[(y0*tw)+x0];
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * Andrew's Utilities
+ * A collection of utilities for Processing.
+ * http://imaginary-institute.com/resources/AULibrary/AULibrary.php
+ *
+ * Copyright (c) 2014 Andrew Glassner Andrew Glassner http://glassner.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General
+ * Public License along with this library; if not, write to the
+ * Free Software Foundation, Inc., 59 Temple Place, Suite 330,
+ * Boston, MA  02111-1307  USA
+ *
+ * @author      Andrew Glassner http://glassner.com
+ * @modified    10/29/2014
+ * @version     1.0.0 (1)
+ */
+
+
+package AULib;
+
+
+import processing.core.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*************************************************
+* VIDEO FILE SINK
+* Writes AUCamera's frames one after another into a
+* single uncompressed video file.
+*
+* FORMAT_Y4M is a YUV4MPEG2 file with full-resolution
+* color (4:4:4, BT.601), which ffmpeg and many players
+* read directly. FORMAT_RGB is just the RGB bytes of each
+* frame with no header at all; tell the reader the size,
+* for example
+*   ffmpeg -f rawvideo -pix_fmt rgb24 -s 640x480 -r 30 -i frames.rgb movie.mp4
+*
+* These files are big (3 bytes per pixel per frame), but
+* they're fast to write and lose nothing.
+*************************************************/
+
+public class AUVideoFileSink implements AUFrameSink {
+
+	// theSketch is a reference to the parent sketch
+	PApplet theSketch;
+
+	public static final int FORMAT_Y4M = 0;
+	public static final int FORMAT_RGB = 1;
+
+	String path;
+	int format, fps;
+	int w, h;
+	FileChannel channel = null;
+	byte[] frame = null;       // one whole frame, ready to write
+	int frameStart;            // where the pixels start in frame[], after any header
+	boolean failed = false;    // after an error we quietly skip the rest
+
+	static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+	public AUVideoFileSink(PApplet _theSketch, String _path, int _format, int _fps) {
+		if (_theSketch == null) {
+			AULib.reportError("AUVideoFileSink", "AUVideoFileSink", "theSketch is null", "");
+		}
+		theSketch = _theSketch;
+		path = _path;
+		format = _format;
+		fps = Math.max(1, _fps);
+		if ((format != FORMAT_Y4M) && (format != FORMAT_RGB)) {
+			AULib.reportError("AUVideoFileSink", "AUVideoFileSink", "unknown format, using FORMAT_Y4M", "format="+_format);
+			format = FORMAT_Y4M;
+		}
+	}
+
+	public void begin(int _w, int _h) {
+		w = _w;
+		h = _h;
+		failed = false;
+		frameStart = (format == FORMAT_Y4M) ? FRAME_HEADER.length : 0;
+		frame = new byte[frameStart + (3*w*h)];
+		System.arraycopy(FRAME_HEADER, 0, frame, 0, frameStart);
+		String fullPath = theSketch.savePath(path);
+		try {
+			channel = FileChannel.open(Paths.get(fullPath), StandardOpenOption.CREATE,
+			                           StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			if (format == FORMAT_Y4M) {
+				String header = "YUV4MPEG2 W"+w+" H"+h+" F"+fps+":1 Ip A1:1 C444\n";
+				write(header.getBytes(StandardCharsets.US_ASCII), header.length());
+			}
+		} catch (IOException e) {
+			fail("begin", fullPath+": "+e);
+		}
+	}
+
+	public void writeFrame(AUMultiField _rgb, int _frameNumber) {
+		if (failed || (channel == null)) return;
+		if ((_rgb.w != w) || (_rgb.h != h) || (_rgb.fields.length < 3)) {
+			AULib.reportError("AUVideoFileSink", "writeFrame", "the frame is not the size given to begin()", "");
+			return;
+		}
+		final AUField r = _rgb.fields[0];
+		final AUField g = _rgb.fields[1];
+		final AUField b = _rgb.fields[2];
+		final byte[] dst = frame;
+		final int start = frameStart;
+		final boolean planes = (format == FORMAT_Y4M);
+		AUParallel.forRows(h, w, (y0, y1) -> {
+			byte[] row = planes ? new byte[3*w] : null;
+			for (int y=y0; y<y1; y++) {
+				if (planes) {
+					AUPixels.rgbBytesRow(r, g, b, y, row, 0, w);
+					rowToYUV(row, dst, start + (y*w), w*h, w);
+				} else {
+					AUPixels.rgbBytesRow(r, g, b, y, dst, start + (3*y*w), w);
+				}
+			}
+		});
+		try {
+			write(frame, frame.length);
+		} catch (IOException e) {
+			fail("writeFrame", e.toString());
+		}
+	}
+
+	public void end() {
+		if (channel == null) return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			AULib.reportError("AUVideoFileSink", "end", "could not close the file", e.toString());
+		}
+		channel = null;
+		frame = null;
+	}
+
+	// _n RGB triples into the Y, U, and V planes at _dst[_d], _dst[_d+_plane], and _dst[_d+2*_plane],
+	// using the usual integer form of the BT.601 studio-range conversion
+	static void rowToYUV(byte[] _rgb, byte[] _dst, int _d, int _plane, int _n) {
+		for (int i=0; i<_n; i++, _d++) {
+			int r = _rgb[3*i] & 0xFF;
+			int g = _rgb[(3*i)+1] & 0xFF;
+			int b = _rgb[(3*i)+2] & 0xFF;
+			_dst[_d]            = (byte)((((66*r) + (129*g) + (25*b) + 128) >> 8) + 16);
+			_dst[_d+_plane]     = (byte)((((-38*r) - (74*g) + (112*b) + 128) >> 8) + 128);
+			_dst[_d+(2*_plane)] = (byte)((((112*r) - (94*g) - (18*b) + 128) >> 8) + 128);
+		}
+	}
+
+	void write(byte[] _bytes, int _n) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(_bytes, 0, _n);
+		while (buf.hasRemaining()) channel.write(buf);
+	}
+
+	void fail(String _func, String _data) {
+		AULib.reportError("AUVideoFileSink", _func, "could not write the video file, skipping the rest of the frames", _data);
+		failed = true;
+		end();
+	}
+}
@@ -0,0 +1,85 @@
+/* Regression checks for AULib (Andrew's Utilities library).
+* Each check is a bug that was fixed; it prints what went wrong and exits
+* with status 1 if the bug comes back.
+*
+* Build the library, then run with Processing's core.jar and AULib.jar on the classpath:
+*   java -cp core.jar:library/AULib.jar test/AURegressionTest.java
+*/
+
+import AULib.*;
+import processing.core.PApplet;
+
+public class AURegressionTest {
+
+	static int failures = 0;
+
+	public static void main(String[] args) {
+		PApplet sketch = new PApplet();
+		mipMapAfterShrinking(sketch);
+		setRangeFarFromZero(sketch);
+		irisMasksLastAFrame();
+		if (failures > 0) {
+			System.out.println(failures + " check(s) failed");
+			System.exit(1);
+		}
+		System.out.println("all checks passed");
+	}
+
+	static void check(boolean ok, String what) {
+		if (!ok) {
+			System.out.println("FAILED: " + what);
+			failures++;
+		}
+	}
+
+	// A field that got smaller while a change was waiting for its mip levels
+	// used to rebuild the old, larger rectangle and run off the end of the new levels.
+	static void mipMapAfterShrinking(PApplet sketch) {
+		AUField big = new AUField(sketch, 100, 100);
+		AUField small = new AUField(sketch, 50, 50);
+		small.flatten(3);
+		big.sample(10, 10, 2);
+		big.set(99, 99, 1);
+		small.dupeInto(big);
+		try {
+			float v = big.sample(10, 10, 2);
+			check(Math.abs(v - 3) < 1e-5f, "mip levels after shrinking: expected 3, got " + v);
+		} catch (RuntimeException e) {
+			check(false, "mip levels after shrinking: " + e);
+		}
+	}
+
+	// setRange() used to fold the minimum into a single offset, (v*scale) + offset,
+	// which cancelled badly for big values close together.
+	static void setRangeFarFromZero(PApplet sketch) {
+		AUField f = new AUField(sketch, 4, 1);
+		for (int x=0; x<4; x++) f.set(x, 0, 1e6f + x);
+		f.setRange(0, 1);
+		for (int x=0; x<4; x++) {
+			float want = x/3.f;
+			check(Math.abs(f.get(x, 0) - want) < 1e-6f, "setRange far from zero: value " + x + " is " + f.get(x, 0) + ", expected " + want);
+		}
+		AUMultiField mf = new AUMultiField(sketch, 3, 4, 1);
+		for (int x=0; x<4; x++) mf.fields[1].set(x, 0, 1e6f + x);
+		mf.setRangeSeparate(0, 1, 3);
+		check(Math.abs(mf.fields[1].get(1, 0) - 1/3.f) < 1e-6f, "setRangeSeparate far from zero: got " + mf.fields[1].get(1, 0));
+	}
+
+	// The iris shutter's masks used to be capped at 64MB, which at full size
+	// holds fewer masks than a frame uses, so every frame made them all again.
+	static void irisMasksLastAFrame() {
+		PApplet sketch = new PApplet() {
+			public void loadPixels() { }
+		};
+		sketch.width = 64;
+		sketch.height = 48;
+		sketch.pixels = new int[sketch.width * sketch.height];
+		AUCamera camera = new AUCamera(sketch, 3, 64, true);
+		camera.setShutterType(AUCamera.SHUTTER_IRIS);
+		for (int e=0; e<64; e++) camera.expose(false);
+		int firstFrame = camera.getMaskBuilds();
+		for (int e=0; e<64; e++) camera.expose(false);
+		check(firstFrame > 0, "iris masks: the first frame made no masks");
+		check(camera.getMaskBuilds() == firstFrame, "iris masks: the second frame made " + (camera.getMaskBuilds() - firstFrame) + " more");
+	}
+}